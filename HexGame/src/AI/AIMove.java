@@ -3,6 +3,7 @@ package AI;
 import Game.*;
 import java.awt.Color;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Represents an AI move decision
@@ -67,16 +68,27 @@ public class AIMove {
                 return;
             }
 
-            state.getBoard().placePiece(actualPiece, to);
-            state.removePieceFromReserve(actualPiece);
-            if (actualPiece.getType() == PieceType.QUEEN) {
-                state.setQueenPlaced(actualPiece.getColor());
-            }
+            state.placePiece(actualPiece, to);
         } else if (type == MoveType.MOVE) {
-            state.getBoard().movePiece(from, to);
+            state.movePiece(from, to);
         }
     }
 
+    // Same kind of move by the same type of piece between the same cells; lets moves from different
+    // searches be matched. Instance numbers are left out, so placing either of two ants on a cell is one move
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof AIMove)) return false;
+        AIMove m = (AIMove) o;
+        return type == m.type && Objects.equals(from, m.from) && to.equals(m.to)
+                && piece.getType() == m.piece.getType() && piece.getColor().equals(m.piece.getColor());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, from, to, piece.getType());
+    }
+
     @Override
     public String toString() {
         return String.format("%s %s from %s to (%d,%d)",
@@ -0,0 +1,437 @@
+package AI;
+
+import Game.*;
+import java.awt.Color;
+import java.util.*;
+
+/**
+ * Iterative-deepening negamax with alpha-beta pruning, scored by the MCTS heuristic.
+ *
+ * Each iteration searches one ply deeper inside an aspiration window around the previous
+ * score, widening it when the result falls outside. A transposition table keeps bounds and
+ * best moves between iterations and searches; moves are tried best-move first, then the
+ * ply's killers, then by history and the queen-pressure move score. Forced wins and losses
+ * score by their distance, so the shortest win is played. Time and node limits apply, and
+ * an iteration limit becomes a node limit of NODES_PER_ITERATION nodes per iteration.
+ */
+public class AlphaBetaEngine implements SearchEngine {
+    public static final int DEFAULT_MAX_DEPTH = 32;
+    public static final int DEFAULT_TABLE_ENTRIES = 1 << 20;
+
+    // Heuristic values map to -EVAL_SCALE..EVAL_SCALE; a win at ply p scores WIN - p
+    private static final int EVAL_SCALE = 1000;
+    private static final int WIN = 1_000_000;
+    private static final int WIN_BOUND = WIN - 1000;
+    private static final int INFINITY = WIN + 1;
+    private static final int ASPIRATION_WINDOW = 50;
+    private static final int MAX_PLY = 128;
+    // Nodes that cost about as much as one heuristic MCTS iteration, for iteration limits
+    static final int NODES_PER_ITERATION = 2;
+    // Limits are checked once per this many nodes
+    private static final int CHECK_INTERVAL = 256;
+    // History scores stay below this, so they only break ties between equal move scores
+    private static final int HISTORY_LIMIT = 10_000;
+
+    private final Table table;
+    private int maxDepth = DEFAULT_MAX_DEPTH;
+
+    // Two moves per ply that last cut off a sibling, and cutoff counts by piece type and destination
+    private final int[][] killers = new int[MAX_PLY][2];
+    private final int[] history = new int[PieceType.values().length * PackedBoard.CELLS];
+
+    private long nodes;
+    private long deadline;
+    private long maxNodes;
+    private boolean stopped;
+    private volatile boolean cancelled;
+    private volatile boolean searching;
+    private volatile int progress;
+    private int completedDepth;
+    private int lastScore;
+
+    public AlphaBetaEngine() {
+        this(DEFAULT_TABLE_ENTRIES);
+    }
+
+    public AlphaBetaEngine(int tableEntries) {
+        this.table = new Table(tableEntries);
+    }
+
+    public void setMaxDepth(int depth) {
+        this.maxDepth = Math.max(1, Math.min(MAX_PLY - 1, depth));
+    }
+
+    // Depth of the last fully searched iteration of the previous search
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    // Score of the previous search for the side that moved, in heuristic units or as a win or loss
+    public int getLastScore() {
+        return lastScore;
+    }
+
+    public static boolean isWinScore(int score) {
+        return Math.abs(score) >= WIN_BOUND;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    @Override
+    public AIMove search(GameState rootState, Color color, SearchLimits limits) {
+        if (!color.equals(rootState.getCurrentPlayer())) {
+            throw new IllegalArgumentException("Alpha-beta searches only for the side to move");
+        }
+        long start = System.nanoTime();
+        long millis = limits.moveTimeMillis();
+        deadline = millis >= Long.MAX_VALUE / 1_000_000 ? Long.MAX_VALUE : start + millis * 1_000_000;
+        maxNodes = limits.getMaxNodes();
+        if (limits.getMaxIterations() != SearchLimits.UNLIMITED) {
+            maxNodes = Math.min(maxNodes, (long) limits.getMaxIterations() * NODES_PER_ITERATION);
+        }
+        nodes = 0;
+        // A stopSearch that came in before this search started still stops it
+        stopped = cancelled;
+        progress = 0;
+        completedDepth = 0;
+        searching = true;
+        table.newSearch();
+        for (int[] ply : killers) Arrays.fill(ply, 0);
+        // Older cutoffs still hint, but count for less
+        for (int i = 0; i < history.length; i++) history[i] >>= 2;
+
+        try {
+            GameState state = rootState.clone();
+            List<AIMove> moves = orderedMoves(state, 0);
+            if (moves.isEmpty()) return null;
+            if (moves.size() == 1) return moves.get(0);
+
+            AIMove best = moves.get(0);
+            int score = 0;
+            for (int depth = 1; depth <= maxDepth; depth++) {
+                int window = depth > 1 && !isWinScore(score) ? ASPIRATION_WINDOW : INFINITY;
+                int alpha = Math.max(-INFINITY, score - window);
+                int beta = Math.min(INFINITY, score + window);
+
+                while (true) {
+                    int[] bestIndex = new int[]{-1};
+                    int result = searchRoot(state, moves, depth, alpha, beta, bestIndex);
+                    if (stopped) break;
+                    if (result <= alpha && alpha > -INFINITY) {
+                        window = Math.min(window * 4, INFINITY);
+                        alpha = Math.max(-INFINITY, result - window);
+                    } else if (result >= beta && beta < INFINITY) {
+                        window = Math.min(window * 4, INFINITY);
+                        beta = Math.min(INFINITY, result + window);
+                    } else {
+                        score = result;
+                        best = moves.get(bestIndex[0]);
+                        // The best move leads the next iteration
+                        moves.remove(bestIndex[0]);
+                        moves.add(0, best);
+                        break;
+                    }
+                }
+                if (stopped) break;
+                completedDepth = depth;
+                // A forced result will not change with more depth
+                if (isWinScore(score)) break;
+            }
+            lastScore = score;
+            return best;
+        } finally {
+            searching = false;
+            cancelled = false;
+            limits.charge((System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    private int searchRoot(GameState state, List<AIMove> moves, int depth, int alpha, int beta, int[] bestIndex) {
+        int best = -INFINITY;
+        int originalAlpha = alpha;
+        int undo = state.getUndoDepth();
+        for (int i = 0; i < moves.size(); i++) {
+            play(state, moves.get(i));
+            int score = -negamax(state, depth - 1, 1, -beta, -alpha);
+            state.undoTo(undo);
+            if (stopped) return best;
+
+            if (score > best) {
+                best = score;
+                bestIndex[0] = i;
+            }
+            if (score > alpha) alpha = score;
+            if (alpha >= beta) break;
+        }
+        if (best > originalAlpha && best < beta) {
+            table.store(state.getHash(), depth, best, Table.EXACT, moveCode(moves.get(bestIndex[0])));
+        }
+        return best;
+    }
+
+    private int negamax(GameState state, int depth, int ply, int alpha, int beta) {
+        if (++nodes % CHECK_INTERVAL == 0) checkLimits();
+        if (stopped) return 0;
+
+        GameResult result = state.getResult();
+        if (result.isOver()) {
+            if (result == GameResult.DRAW) return 0;
+            return result.isWinFor(state.getCurrentPlayer()) ? WIN - ply : -(WIN - ply);
+        }
+        if (depth <= 0 || ply >= MAX_PLY - 1) return evaluate(state);
+
+        long hash = state.getHash();
+        int hashMove = 0;
+        int slot = table.find(hash);
+        if (slot >= 0) {
+            hashMove = table.move(slot);
+            if (table.depth(slot) >= depth) {
+                int stored = fromTable(table.score(slot), ply);
+                int bound = table.bound(slot);
+                if (bound == Table.EXACT
+                        || bound == Table.LOWER && stored >= beta
+                        || bound == Table.UPPER && stored <= alpha) {
+                    return stored;
+                }
+            }
+        }
+
+        List<AIMove> moves = MoveGenerator.generateLegalMoves(state, state.getCurrentPlayer());
+        int undo = state.getUndoDepth();
+        if (moves.isEmpty()) {
+            // No legal move passes the turn
+            state.nextPlayer();
+            int score = -negamax(state, depth - 1, ply + 1, -beta, -alpha);
+            state.undoTo(undo);
+            return score;
+        }
+
+        int[] codes = distinctCodes(moves);
+        int[] order = orderScores(state, moves, codes, ply, hashMove);
+
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestCode = 0;
+        for (int next = pickNext(order); next >= 0; next = pickNext(order)) {
+            play(state, moves.get(next));
+            int score = -negamax(state, depth - 1, ply + 1, -beta, -alpha);
+            state.undoTo(undo);
+            if (stopped) return 0;
+
+            if (score > best) {
+                best = score;
+                bestCode = codes[next];
+            }
+            if (score > alpha) alpha = score;
+            if (alpha >= beta) {
+                recordCutoff(codes[next], depth, ply);
+                break;
+            }
+        }
+
+        int bound = best <= originalAlpha ? Table.UPPER : best >= beta ? Table.LOWER : Table.EXACT;
+        table.store(hash, depth, toTable(best, ply), bound, bestCode);
+        return best;
+    }
+
+    // Heuristic value for the side to move less the opponent's, so the score is zero-sum as negamax needs
+    private int evaluate(GameState state) {
+        Color side = state.getCurrentPlayer();
+        Color opponent = side.equals(Color.WHITE) ? Color.BLACK : Color.WHITE;
+        double value = Heuristics.evaluate(state, side) - Heuristics.evaluate(state, opponent);
+        return (int) Math.round(value * EVAL_SCALE);
+    }
+
+    private void checkLimits() {
+        progress = (int) Math.min(Integer.MAX_VALUE, nodes);
+        if (cancelled || nodes >= maxNodes || System.nanoTime() >= deadline
+                || Thread.currentThread().isInterrupted()) {
+            stopped = true;
+        }
+    }
+
+    // Root moves, duplicates removed, in the order the first iteration should try them
+    private List<AIMove> orderedMoves(GameState state, int ply) {
+        List<AIMove> moves = MoveGenerator.generateLegalMoves(state, state.getCurrentPlayer());
+        int[] codes = distinctCodes(moves);
+        int slot = table.find(state.getHash());
+        int[] order = orderScores(state, moves, codes, ply, slot >= 0 ? table.move(slot) : 0);
+
+        List<AIMove> sorted = new ArrayList<>(moves.size());
+        for (int next = pickNext(order); next >= 0; next = pickNext(order)) {
+            sorted.add(moves.get(next));
+        }
+        return sorted;
+    }
+
+    // Move codes, with 0 for placements repeating an earlier one (the generator lists one per reserve piece)
+    private static int[] distinctCodes(List<AIMove> moves) {
+        int[] codes = new int[moves.size()];
+        Set<Integer> placements = null;
+        for (int i = 0; i < codes.length; i++) {
+            AIMove move = moves.get(i);
+            int code = moveCode(move);
+            if (move.getType() == MoveType.PLACE) {
+                if (placements == null) placements = new HashSet<>();
+                if (!placements.add(code)) code = 0;
+            }
+            codes[i] = code;
+        }
+        return codes;
+    }
+
+    // Never 0: kind, piece type, origin and destination cell
+    private static int moveCode(AIMove move) {
+        int from = move.getType() == MoveType.MOVE ? PackedBoard.index(move.getFrom()) : PackedBoard.CELLS;
+        int to = PackedBoard.index(move.getTo());
+        return (move.getPiece().getType().ordinal() + 1) << 26 | from << 13 | to;
+    }
+
+    // Higher is tried sooner; duplicates get Integer.MIN_VALUE and are never tried
+    private int[] orderScores(GameState state, List<AIMove> moves, int[] codes, int ply, int hashMove) {
+        int[] order = new int[codes.length];
+        for (int i = 0; i < codes.length; i++) {
+            int code = codes[i];
+            if (code == 0) {
+                order[i] = Integer.MIN_VALUE;
+            } else if (code == hashMove) {
+                order[i] = Integer.MAX_VALUE;
+            } else if (code == killers[ply][0]) {
+                order[i] = Integer.MAX_VALUE - 1;
+            } else if (code == killers[ply][1]) {
+                order[i] = Integer.MAX_VALUE - 2;
+            } else {
+                int type = (code >>> 26) - 1;
+                int to = code & 0x1fff;
+                order[i] = (int) (Heuristics.moveScore(state, moves.get(i)) * HISTORY_LIMIT) + history[type * PackedBoard.CELLS + to];
+            }
+        }
+        return order;
+    }
+
+    // Index of the untried move with the highest order score, marked tried, or -1 once none are left
+    private static int pickNext(int[] order) {
+        int best = -1;
+        for (int j = 0; j < order.length; j++) {
+            if (order[j] != Integer.MIN_VALUE && (best < 0 || order[j] > order[best])) best = j;
+        }
+        if (best >= 0) order[best] = Integer.MIN_VALUE;
+        return best;
+    }
+
+    private void recordCutoff(int code, int depth, int ply) {
+        if (killers[ply][0] != code) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = code;
+        }
+        int type = (code >>> 26) - 1;
+        int slot = type * PackedBoard.CELLS + (code & 0x1fff);
+        history[slot] = Math.min(history[slot] + depth * depth, HISTORY_LIMIT - 1);
+    }
+
+    // Win scores are stored relative to the node, so they stay right when reached at another ply
+    private static int toTable(int score, int ply) {
+        if (score >= WIN_BOUND) return score + ply;
+        if (score <= -WIN_BOUND) return score - ply;
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score >= WIN_BOUND) return score - ply;
+        if (score <= -WIN_BOUND) return score + ply;
+        return score;
+    }
+
+    private static void play(GameState state, AIMove move) {
+        move.execute(state);
+        state.nextPlayer();
+    }
+
+    @Override
+    public void stopSearch() {
+        cancelled = true;
+    }
+
+    @Override
+    public int getSearchProgress() {
+        return searching ? progress : 0;
+    }
+
+    @Override
+    public void clearTree() {
+        table.clear();
+        Arrays.fill(history, 0);
+    }
+
+    /*
+     * Bounds by position: one entry per slot, indexed by the low hash bits. An entry is
+     * replaced by a search at least as deep, or by any entry once it is from an older search.
+     */
+    private static final class Table {
+        static final int EXACT = 0;
+        static final int LOWER = 1;
+        static final int UPPER = 2;
+
+        private final long[] keys;
+        private final int[] scores;
+        private final int[] moves;
+        // Depth in the low byte, bound in the next, search generation above
+        private final int[] info;
+        private final int mask;
+        private int generation;
+
+        Table(int entries) {
+            int size = Integer.highestOneBit(Math.max(2, entries - 1) << 1);
+            mask = size - 1;
+            keys = new long[size];
+            scores = new int[size];
+            moves = new int[size];
+            info = new int[size];
+        }
+
+        // Generations run 1..0xffff, so a used entry's info is never 0
+        void newSearch() {
+            generation = generation % 0xffff + 1;
+        }
+
+        int find(long hash) {
+            int slot = (int) (hash ^ hash >>> 32) & mask;
+            return keys[slot] == hash && info[slot] != 0 ? slot : -1;
+        }
+
+        void store(long hash, int depth, int score, int bound, int move) {
+            int slot = (int) (hash ^ hash >>> 32) & mask;
+            boolean same = keys[slot] == hash;
+            if (info[slot] != 0 && (info[slot] >>> 16) == generation && !same && depth(slot) > depth) return;
+            // Keep a known best move when the new result has none
+            if (same && move == 0) move = moves[slot];
+            keys[slot] = hash;
+            scores[slot] = score;
+            moves[slot] = move;
+            info[slot] = generation << 16 | bound << 8 | depth;
+        }
+
+        int depth(int slot) {
+            return info[slot] & 0xff;
+        }
+
+        int bound(int slot) {
+            return info[slot] >>> 8 & 0xff;
+        }
+
+        int score(int slot) {
+            return scores[slot];
+        }
+
+        int move(int slot) {
+            return moves[slot];
+        }
+
+        void clear() {
+            Arrays.fill(keys, 0L);
+            Arrays.fill(info, 0);
+        }
+    }
+}
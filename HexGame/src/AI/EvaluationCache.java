@@ -0,0 +1,107 @@
+package AI;
+
+import Game.GameState;
+import java.awt.Color;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Network outputs for recently evaluated positions, least recently used dropped first.
+ *
+ * Keys combine the position hash with everything else the encoder reads: the turn count and
+ * the side the position is encoded for. Outputs are only valid for the weights they came
+ * from, so the cache empties itself when the network's version changes. A forward pass costs
+ * far more than a lock, so one lock guards the whole map. Returned arrays are shared and
+ * must not be modified.
+ */
+class EvaluationCache {
+    // Array header, map entry, key and links per entry, on top of the outputs themselves
+    private static final int ENTRY_OVERHEAD_BYTES = 16 + 64;
+    private static final long TURN_MIX = 0x9E3779B97F4A7C15L;
+    private static final long BLACK_PERSPECTIVE = 0xC2B2AE3D27D4EB4FL;
+
+    private final NeuralNetwork network;
+    private final int capacity;
+    private final LinkedHashMap<Long, double[]> entries;
+    private int version;
+    private long outputBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    EvaluationCache(NeuralNetwork network, int capacity) {
+        this.network = network;
+        this.capacity = Math.max(1, capacity);
+        this.version = network.getVersion();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, double[]> eldest) {
+                if (size() <= EvaluationCache.this.capacity) return false;
+                outputBytes -= eldest.getValue().length * 8L;
+                evictions.increment();
+                return true;
+            }
+        };
+    }
+
+    static long key(GameState state, Color perspective) {
+        long key = state.getHash() ^ state.getTurnCount() * TURN_MIX;
+        return perspective.equals(Color.WHITE) ? key : key ^ BLACK_PERSPECTIVE;
+    }
+
+    // Cached output for key, or null
+    synchronized double[] get(long key) {
+        checkVersion();
+        double[] output = entries.get(key);
+        if (output != null) hits.increment(); else misses.increment();
+        return output;
+    }
+
+    synchronized void put(long key, double[] output) {
+        checkVersion();
+        double[] old = entries.put(key, output);
+        outputBytes += output.length * 8L - (old != null ? old.length * 8L : 0);
+    }
+
+    private void checkVersion() {
+        int current = network.getVersion();
+        if (current != version) {
+            clear();
+            version = current;
+            invalidations.increment();
+        }
+    }
+
+    synchronized void clear() {
+        entries.clear();
+        outputBytes = 0;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    synchronized long bytes() {
+        return outputBytes + (long) entries.size() * ENTRY_OVERHEAD_BYTES;
+    }
+
+    double hitRate() {
+        long total = hits.sum() + misses.sum();
+        return total == 0 ? 0.0 : (double) hits.sum() / total;
+    }
+
+    long evictions() {
+        return evictions.sum();
+    }
+
+    long invalidations() {
+        return invalidations.sum();
+    }
+}
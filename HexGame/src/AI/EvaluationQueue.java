@@ -0,0 +1,116 @@
+package AI;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects network inputs from search threads and runs them through the network in mini-batches.
+ *
+ * A batch closes when it is full, when every client thread is already waiting in it, or when
+ * the timeout since its first request runs out. The evaluating thread stops after a second
+ * without work and is restarted by the next request.
+ */
+class EvaluationQueue {
+    private static final long IDLE_SECONDS = 1;
+
+    private static final class Request {
+        final double[] input;
+        final CompletableFuture<double[]> output = new CompletableFuture<>();
+
+        Request(double[] input) {
+            this.input = input;
+        }
+    }
+
+    private final NeuralNetwork network;
+    private final int batchSize;
+    private final long timeoutNanos;
+    private final LinkedBlockingQueue<Request> pending = new LinkedBlockingQueue<>();
+    private volatile int clients = 1;
+    private boolean running;
+
+    EvaluationQueue(NeuralNetwork network, int batchSize, long timeoutMicros) {
+        this.network = network;
+        this.batchSize = Math.max(1, batchSize);
+        this.timeoutNanos = TimeUnit.MICROSECONDS.toNanos(timeoutMicros);
+    }
+
+    // Threads that may be waiting at once; a batch never waits for more than this
+    void setClients(int clients) {
+        this.clients = Math.max(1, clients);
+    }
+
+    double[] evaluate(double[] input) {
+        Request request = new Request(input);
+        pending.add(request);
+        synchronized (this) {
+            if (!running) {
+                running = true;
+                Thread worker = new Thread(this::run, "nn-batch");
+                worker.setDaemon(true);
+                worker.start();
+            }
+        }
+        return request.output.join();
+    }
+
+    private void run() {
+        List<Request> batch = new ArrayList<>(batchSize);
+        try {
+            while (true) {
+                Request first = pending.poll(IDLE_SECONDS, TimeUnit.SECONDS);
+                if (first == null) {
+                    synchronized (this) {
+                        if (pending.isEmpty()) {
+                            running = false;
+                            return;
+                        }
+                    }
+                    continue;
+                }
+
+                batch.add(first);
+                int target = Math.min(batchSize, clients);
+                long deadline = System.nanoTime() + timeoutNanos;
+                while (batch.size() < target) {
+                    Request next = pending.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                pending.drainTo(batch, batchSize - batch.size());
+
+                evaluateBatch(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            synchronized (this) {
+                running = false;
+            }
+            pending.drainTo(batch);
+            for (Request request : batch) {
+                request.output.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void evaluateBatch(List<Request> batch) {
+        double[][] inputs = new double[batch.size()][];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = batch.get(i).input;
+        }
+
+        try {
+            double[][] outputs = network.forwardBatch(inputs);
+            for (int i = 0; i < outputs.length; i++) {
+                batch.get(i).output.complete(outputs[i]);
+            }
+        } catch (RuntimeException e) {
+            for (Request request : batch) {
+                request.output.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package AI;
+
+import Game.*;
+import java.awt.Color;
+import java.util.*;
+
+/**
+ * Hand-written position and move scores shared by the searches that run without networks.
+ */
+final class Heuristics {
+
+    private Heuristics() {
+    }
+
+    // Queen pressure, mobility and centre control for aiColor, from 0 (lost) to 1 (won)
+    static double evaluate(GameState state, Color aiColor) {
+        HiveBoard board = state.getBoard();
+        double score = 0.5;
+
+        // Find queens - use copy to avoid ConcurrentModificationException
+        HexCoord aiQueenPos = null;
+        HexCoord oppQueenPos = null;
+
+        Set<HexCoord> coordinates = new HashSet<>(board.getBoard().keySet());
+        for (HexCoord coord : coordinates) {
+            List<Piece> stack = board.getStackAt(coord);
+            if (stack != null && !stack.isEmpty()) {
+                Piece piece = stack.get(0);
+                if (piece.getType() == PieceType.QUEEN) {
+                    if (piece.getColor().equals(aiColor)) {
+                        aiQueenPos = coord;
+                    } else {
+                        oppQueenPos = coord;
+                    }
+                }
+            }
+        }
+
+        // Evaluate queen safety
+        if (aiQueenPos != null) {
+            int aiQueenNeighbors = countNeighbors(board, aiQueenPos);
+            // Penalize surrounded queen
+            score -= aiQueenNeighbors * 0.08;
+        }
+
+        if (oppQueenPos != null) {
+            int oppQueenNeighbors = countNeighbors(board, oppQueenPos);
+            // Reward surrounding opponent queen
+            score += oppQueenNeighbors * 0.08;
+        }
+
+        // Piece mobility
+        int aiMobility = countMobility(state, aiColor);
+        int oppMobility = countMobility(state, opponent(aiColor));
+        score += (aiMobility - oppMobility) * 0.01;
+
+        // Control of center
+        score += evaluatePosition(board, aiColor) * 0.05;
+
+        // Penalty for long games
+        int turnCount = state.getTurnCount();
+        if (turnCount > 60) {
+            score -= (turnCount - 60) * 0.01;
+        }
+
+        return Math.max(0.0, Math.min(1.0, score));
+    }
+
+    // Cheap ordering for moves without a policy: crowd the enemy queen, free our own
+    static double moveScore(GameState state, AIMove move) {
+        PackedBoard packed = state.getBoard().getPacked();
+        boolean white = move.getPiece().getColor().equals(Color.WHITE);
+        int ownQueen = packed.queenIndex(white);
+        int enemyQueen = packed.queenIndex(!white);
+        int to = PackedBoard.index(move.getTo());
+
+        double score = 0.0;
+        if (enemyQueen >= 0 && isAdjacent(to, enemyQueen)) score += 2.0;
+        if (ownQueen >= 0 && isAdjacent(to, ownQueen)) score -= 1.0;
+        if (move.getType() == MoveType.MOVE) {
+            int from = PackedBoard.index(move.getFrom());
+            if (ownQueen >= 0 && from != ownQueen && isAdjacent(from, ownQueen)) score += 1.0;
+            if (enemyQueen >= 0 && isAdjacent(from, enemyQueen)) score -= 1.0;
+        }
+        return score;
+    }
+
+    static boolean isAdjacent(int cell, int other) {
+        for (int d = 0; d < 6; d++) {
+            if (PackedBoard.neighbor(cell, d) == other) return true;
+        }
+        return false;
+    }
+
+    private static int countNeighbors(HiveBoard board, HexCoord coord) {
+        return board.getPacked().countOccupiedNeighbors(PackedBoard.index(coord));
+    }
+
+    private static int countMobility(GameState state, Color color) {
+        int moves = 0;
+        Set<HexCoord> coordinates = new HashSet<>(state.getBoard().getBoard().keySet());
+        for (HexCoord coord : coordinates) {
+            Piece piece = state.getBoard().getTopPieceAt(coord);
+            if (piece != null && piece.getColor().equals(color)) {
+                MoveCalculator calc = new MoveCalculator(
+                        state.getBoard(), new MovementValidator(state.getBoard()));
+                moves += calc.getValidMoves(piece, coord).size();
+            }
+        }
+        return moves;
+    }
+
+    private static double evaluatePosition(HiveBoard board, Color color) {
+        double score = 0.0;
+        Set<HexCoord> coordinates = new HashSet<>(board.getBoard().keySet());
+        for (HexCoord coord : coordinates) {
+            List<Piece> stack = board.getStackAt(coord);
+            if (stack != null && !stack.isEmpty()) {
+                Piece piece = stack.get(0);
+                if (piece.getColor().equals(color)) {
+                    double distance = Math.sqrt(coord.getQ() * coord.getQ() + coord.getR() * coord.getR());
+                    score += 1.0 / (1.0 + distance);
+                }
+            }
+        }
+        return score;
+    }
+
+    private static Color opponent(Color color) {
+        return color.equals(Color.WHITE) ? Color.BLACK : Color.WHITE;
+    }
+}
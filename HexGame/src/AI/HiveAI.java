@@ -9,17 +9,60 @@ public class HiveAI {
     public NeuralNetwork policyNetwork;
     public NeuralNetwork valueNetwork;
     private MCTSEngine mctsEngine;
+    // Engine the searched moves come from; MCTS unless replaced
+    private SearchEngine searchEngine;
+    private final TacticalSolver tactics = new TacticalSolver();
     private double explorationRate = 0.15;
+    // Budget for end-game searches; the mid-game probe gets a fifth of it
+    private SearchLimits searchLimits = SearchLimits.iterations(50);
 
     public HiveAI(boolean loadWeights) {
-        this.policyNetwork = new NeuralNetwork(loadWeights);
-        this.valueNetwork = new NeuralNetwork(loadWeights,
-                new int[]{1220, 512, 256, 128, 1}, "models/hive_value_network.dat");
-        this.mctsEngine = new MCTSEngine(policyNetwork, valueNetwork);
+        this(loadWeights, 1);
+    }
+
+    // searchThreads above 1 is for the interactive opponent; trainers run many single-threaded AIs side by side
+    public HiveAI(boolean loadWeights, int searchThreads) {
+        this(new NeuralNetwork(loadWeights),
+                new NeuralNetwork(loadWeights,
+                        new int[]{1220, 512, 256, 128, 1}, "models/hive_value_network.dat"),
+                searchThreads);
+    }
+
+    public HiveAI(NeuralNetwork policyNetwork, NeuralNetwork valueNetwork) {
+        this(policyNetwork, valueNetwork, 1);
+    }
+
+    public HiveAI(NeuralNetwork policyNetwork, NeuralNetwork valueNetwork, int searchThreads) {
+        this.policyNetwork = policyNetwork;
+        this.valueNetwork = valueNetwork;
+        this.mctsEngine = new MCTSEngine(policyNetwork, valueNetwork, searchThreads);
+        this.searchEngine = mctsEngine;
+    }
+
+    // Plays searched moves with engine, e.g. an AlphaBetaEngine for tactical play; null goes back to MCTS
+    public void setSearchEngine(SearchEngine engine) {
+        searchEngine.stopPondering();
+        searchEngine = engine != null ? engine : mctsEngine;
+    }
+
+    public SearchEngine getSearchEngine() {
+        return searchEngine;
     }
 
 
     public AIMove getBestMove(GameState state, Color aiColor) {
+        return getBestMove(state, aiColor, searchLimits);
+    }
+
+    public AIMove getBestMove(GameState state, Color aiColor, SearchLimits limits) {
+        searchEngine.stopPondering();
+
+        // Forced queen surrounds, for or against us, are settled before any search
+        if (state.getCurrentPlayer().equals(aiColor)) {
+            AIMove tactical = tactics.solve(state);
+            if (tactical != null) return tactical;
+        }
+
         double[] stateVector = encodeGameState(state, aiColor);
 
         List<AIMove> legalMoves = generateLegalMoves(state, aiColor);
@@ -32,114 +75,63 @@ public class HiveAI {
             return getEarlyGameMove(state, legalMoves, aiColor);
         } else if (turnCount < 12) {
             // Mid game: Blend RL + MCTS
-            return getBlendedMove(state, legalMoves, stateVector);
+            return getBlendedMove(state, legalMoves, stateVector, limits.scaled(0.2));
         } else {
             // End game: Pure MCTS for tactical precision
-            return mctsEngine.search(state, aiColor, 50);
+            return searchEngine.search(state, aiColor, limits);
         }
     }
 
 
-    public List<AIMove> generateLegalMoves(GameState state, Color color) {
-        List<AIMove> moves = new ArrayList<>();
-        HiveBoard board = state.getBoard();
-
-        // Placement moves - use ACTUAL pieces from reserve
-        List<Piece> reserve = state.getReserve(color);
-        for (Piece piece : reserve) {
-            if (state.mustPlaceQueen() && piece.getType() != PieceType.QUEEN) {
-                continue;
-            }
-
-            List<HexCoord> validPlacements = getValidPlacementCoords(board, piece, color);
-            for (HexCoord coord : validPlacements) {
-                // Use the ACTUAL piece from reserve, not a new one
-                moves.add(new AIMove(piece, null, coord, MoveType.PLACE));
-            }
+    // Searches while the opponent thinks in state; only worth it once our next move is searched rather than scripted
+    public void startPondering(GameState state) {
+        if (state.getTurnCount() + 1 >= 4) {
+            searchEngine.startPondering(state);
         }
+    }
 
-        // Movement moves (only if queen is placed)
-        if (state.isQueenPlaced(color)) {
-            // Create a copy of the coordinates to avoid ConcurrentModificationException
-            Set<HexCoord> coordinates = new HashSet<>(board.getBoard().keySet());
-            for (HexCoord coord : coordinates) {
-                Piece topPiece = board.getTopPieceAt(coord);
-                if (topPiece != null && topPiece.getColor().equals(color)) {
-                    MoveCalculator calc = new MoveCalculator(board, new MovementValidator(board));
-                    List<HexCoord> validMoves = calc.getValidMoves(topPiece, coord);
-                    for (HexCoord dest : validMoves) {
-                        moves.add(new AIMove(topPiece, coord, dest, MoveType.MOVE));
-                    }
-                }
-            }
-        }
+    public void stopPondering() {
+        searchEngine.stopPondering();
+    }
 
-        return moves;
+    // Ends pondering and any search in progress; a cancelled getBestMove returns the best move found so far
+    public void cancelSearch() {
+        searchEngine.stopSearch();
+        searchEngine.stopPondering();
     }
 
+    // Iterations (or alpha-beta nodes) the running search has done, for progress display
+    public int getSearchProgress() {
+        return searchEngine.getSearchProgress();
+    }
 
-    private List<HexCoord> getValidPlacementCoords(HiveBoard board, Piece piece, Color color) {
-        List<HexCoord> coords = new ArrayList<>();
-        PlacementValidator validator = new PlacementValidator(board);
+    public void setSearchLimits(SearchLimits limits) {
+        this.searchLimits = limits;
+    }
 
-        if (board.isEmpty()) {
-            coords.add(new HexCoord(0, 0));
-            return coords;
-        }
+    public SearchLimits getSearchLimits() {
+        return searchLimits;
+    }
 
-        // Check all positions adjacent to existing pieces
-        Set<HexCoord> checked = new HashSet<>();
-        for (HexCoord existing : board.getAllCoordinates()) {
-            for (HexCoord neighbor : existing.getNeighbors()) {
-                if (!checked.contains(neighbor)) {
-                    if (validator.canPlaceAt(neighbor, piece)) {
-                        coords.add(neighbor);
-                    }
-                    checked.add(neighbor);
-                }
-            }
-        }
+    // Forget the search tree kept between moves and refill the time bank; call when a new game starts or the networks change
+    public void clearSearchTree() {
+        searchEngine.clearTree();
+        searchLimits.resetTimeBank();
+    }
 
-        return coords;
+    public List<AIMove> generateLegalMoves(GameState state, Color color) {
+        return MoveGenerator.generateLegalMoves(state, color);
     }
 
     public double[] encodeGameState(GameState state, Color aiColor) {
-        // Feature vector: 11x11 grid * 2 colors * 5 piece types = 1210 features
-        // + game phase features = 1220 total
-        double[] features = new double[1220];
-        int idx = 0;
-
-        // Encode board state
-        HiveBoard board = state.getBoard();
-        for (int q = -5; q <= 5; q++) {
-            for (int r = -5; r <= 5; r++) {
-                HexCoord coord = new HexCoord(q, r);
-                Piece piece = board.getTopPieceAt(coord);
-
-                if (piece != null) {
-                    int colorOffset = piece.getColor().equals(aiColor) ? 0 : 5;
-                    int typeIdx = piece.getType().ordinal();
-                    features[idx + colorOffset + typeIdx] = 1.0;
-                }
-                idx += 10; // 5 types * 2 colors
-            }
-        }
-
-        // Game phase features
-        features[1210] = state.getTurnCount() / 30.0; // Normalize turn count
-        features[1211] = state.isQueenPlaced(aiColor) ? 1.0 : 0.0;
-        features[1212] = state.isQueenPlaced(getOpponentColor(aiColor)) ? 1.0 : 0.0;
-        features[1213] = state.getReserve(aiColor).size() / 11.0; // Normalize reserve
-        features[1214] = board.size() / 22.0; // Normalize board size
-
-        return features;
+        return StateEncoder.encode(state, aiColor);
     }
 
 
-    private AIMove getBlendedMove(GameState state, List<AIMove> moves, double[] stateVector) {
+    private AIMove getBlendedMove(GameState state, List<AIMove> moves, double[] stateVector, SearchLimits limits) {
         double[] policyProbs = policyNetwork.forward(stateVector);
 
-        AIMove mctsMove = mctsEngine.search(state, state.getCurrentPlayer(), 10);
+        AIMove mctsMove = searchEngine.search(state, state.getCurrentPlayer(), limits);
 
         // Blend: 30% MCTS, 70% policy network
         if (Math.random() < 0.3 && mctsMove != null) {
@@ -153,7 +145,7 @@ public class HiveAI {
     private AIMove getEarlyGameMove(GameState state, List<AIMove> moves, Color color) {
         if (state.getTurnCount() == 0) {
             for (AIMove move : moves) {
-                if (move.getTo().equals(new HexCoord(0, 0))) {
+                if (move.getTo().equals(HexCoord.of(0, 0))) {
                     return move;
                 }
             }
@@ -195,8 +187,4 @@ public class HiveAI {
 
         return moves.get(0);
     }
-
-    private Color getOpponentColor(Color color) {
-        return color.equals(Color.WHITE) ? Color.BLACK : Color.WHITE;
-    }
 }
\ No newline at end of file
@@ -3,338 +3,841 @@ package AI;
 import Game.*;
 import java.awt.Color;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 
-public class MCTSEngine {
+public class MCTSEngine implements SearchEngine {
+    // Worker threads shared by every engine; the searching thread always works too
+    private static final ExecutorService WORKERS = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "mcts-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // How several threads share the work: one tree between them, or one tree each merged at the root
+    public enum Parallelism { TREE, ROOT }
+
     private NeuralNetwork policyNet;
     private NeuralNetwork valueNet;
     private double explorationConstant = 1.41;
+    private int threads;
+    private Parallelism parallelism;
+    private final Random seeds = new Random();
+
+    // Children a node may select among grow as 1 + WIDENING_SCALE * visits ^ WIDENING_EXPONENT
+    private static final double WIDENING_SCALE = 1.5;
+    private static final double WIDENING_EXPONENT = 0.5;
+    // Without widening, expansion keeps the first MAX_CHILDREN moves in generation order
+    private static final int MAX_CHILDREN = 50;
+    private boolean progressiveWidening = true;
+    private boolean solver = true;
+
+    // Leaves scored by playouts of up to rolloutDepth plies instead of the value net or heuristic; 0 is off
+    private int rolloutDepth;
+    private boolean rolloutBias = true;
+    private final ThreadLocal<Playout> playouts = ThreadLocal.withInitial(() -> new Playout(System.nanoTime()));
+    private final LongAdder playoutCount = new LongAdder();
+
+    // Leaf evaluations from several threads go through these in batches; null means call the network directly
+    private EvaluationQueue policyQueue;
+    private EvaluationQueue valueQueue;
+
+    // Network outputs of recent positions, kept across searches and games until the weights change
+    public static final int DEFAULT_CACHE_ENTRIES = 1 << 16;
+    private EvaluationCache policyCache;
+    private EvaluationCache valueCache;
+
+    // Node storage, recycled between searches; spare receives the subtree kept for the next search
+    private NodeArena arena = new NodeArena();
+    private NodeArena spare = new NodeArena();
+    private final List<NodeArena> rootParallelArenas = new ArrayList<>();
+
+    // Root and position of the previous search, kept so the next search can start inside its tree
+    private int lastRoot = NodeArena.NONE;
+    private GameState lastState;
+
+    // Background search on the opponent's time; its tree is left as the previous search's, marked pondered
+    private static final int PONDER_MAX_NODES = 2_000_000;
+    private Future<?> ponderTask;
+    private boolean pondered;
+    // Visits of the ponder root and its children when pondering began, made by the search before it
+    private int ponderRoot = NodeArena.NONE;
+    private int ponderRootVisits;
+    private int ponderFirstChild;
+    private int[] ponderChildVisits = new int[0];
+    // Visits of the reused root that pondering did not make, set by reuseRoot
+    private int carriedVisits;
+
+    // Statistics shared between transposed nodes, kept across searches until clearTree; null when off
+    public static final int DEFAULT_TRANSPOSITION_ENTRIES = 1 << 18;
+    private TranspositionTable transpositions = new TranspositionTable(DEFAULT_TRANSPOSITION_ENTRIES);
+
+    // Budget of the search running now, so another thread can watch or stop it
+    private volatile Budget activeBudget;
 
     public MCTSEngine(NeuralNetwork policy, NeuralNetwork value) {
+        this(policy, value, 1);
+    }
+
+    public MCTSEngine(NeuralNetwork policy, NeuralNetwork value, int threads) {
+        this(policy, value, threads, Parallelism.TREE);
+    }
+
+    public MCTSEngine(NeuralNetwork policy, NeuralNetwork value, int threads, Parallelism parallelism) {
         this.policyNet = policy;
         this.valueNet = value;
+        this.threads = Math.max(1, threads);
+        this.parallelism = parallelism;
+        if (this.threads > 1) {
+            buildEvaluationQueues(this.threads, 500);
+        }
+        buildEvaluationCaches(DEFAULT_CACHE_ENTRIES);
     }
 
+    // Batches of up to batchSize leaves, waiting at most timeoutMicros to fill one; a size of 1 turns batching off
+    public void setEvaluationBatching(int batchSize, long timeoutMicros) {
+        buildEvaluationQueues(batchSize, timeoutMicros);
+    }
 
-    public AIMove search(GameState rootState, Color aiColor, int iterations) {
-        MCTSNode root = new MCTSNode(null, null, rootState.clone());
+    private void buildEvaluationQueues(int batchSize, long timeoutMicros) {
+        policyQueue = null;
+        valueQueue = null;
+        if (batchSize <= 1) return;
 
-        // Safety: limit iterations timeout
-        int maxIterations = Math.min(iterations, 50);
-        long startTime = System.currentTimeMillis();
-        long timeoutMs = 2000;
+        if (policyNet != null) {
+            policyQueue = new EvaluationQueue(policyNet, batchSize, timeoutMicros);
+            policyQueue.setClients(threads);
+        }
+        if (valueNet != null) {
+            valueQueue = new EvaluationQueue(valueNet, batchSize, timeoutMicros);
+            valueQueue.setClients(threads);
+        }
+    }
 
-        for (int i = 0; i < maxIterations; i++) {
-            if (i % 10 == 0 && System.currentTimeMillis() - startTime > timeoutMs) {
-                break;
-            }
+    // Room for entries outputs per network; 0 turns caching off
+    public void setEvaluationCache(int entries) {
+        stopPondering();
+        buildEvaluationCaches(entries);
+    }
 
-            MCTSNode node = root;
-            GameState state = rootState.clone();
+    private void buildEvaluationCaches(int entries) {
+        policyCache = policyNet != null && entries > 0 ? new EvaluationCache(policyNet, entries) : null;
+        valueCache = valueNet != null && entries > 0 ? new EvaluationCache(valueNet, entries) : null;
+    }
 
+    // Over both networks' caches: share of lookups answered, memory held and entries dropped for room
+    public double getEvaluationCacheHitRate() {
+        double policy = policyCache != null ? policyCache.hitRate() : 0.0;
+        double value = valueCache != null ? valueCache.hitRate() : 0.0;
+        return policyCache != null && valueCache != null ? (policy + value) / 2 : policy + value;
+    }
 
-            int selectionDepth = 0;
-            while (!node.isLeaf() && !isTerminal(state) && selectionDepth < 100) {
-                node = selectChild(node);
-                if (node == null || node.move == null) break;
-                node.move.execute(state);
-                selectionDepth++;
-            }
+    public long getEvaluationCacheBytes() {
+        return (policyCache != null ? policyCache.bytes() : 0) + (valueCache != null ? valueCache.bytes() : 0);
+    }
 
-            if(node == null) continue;
-            if (!isTerminal(state) && node.visits > 0) {
-                expand(node, state);
-                if (!node.children.isEmpty()) {
-                    node = node.children.get(0);
-                    if (node.move != null) {
-                        node.move.execute(state);
-                    }
-                }
-            }
+    public long getEvaluationCacheEvictions() {
+        return (policyCache != null ? policyCache.evictions() : 0) + (valueCache != null ? valueCache.evictions() : 0);
+    }
 
-            // Simulation: evaluate position
-            double value = evaluate(state, aiColor);
+    // Proves wins and losses from finished games up the tree, skips lost moves and stops once the root is proven
+    public void setSolver(boolean enabled) {
+        this.solver = enabled;
+    }
 
-            // Backpropagation: update statistics
-            backpropagate(node, value);
-        }
+    // Playouts of up to depth plies score the leaves, random or leaning on the enemy queen when biased; 0 turns them off
+    public void setRollouts(int depth, boolean biased) {
+        this.rolloutDepth = Math.max(0, depth);
+        this.rolloutBias = biased;
+    }
 
-        // Return move with highest visit count
-        return getBestMove(root);
+    // Playouts run since the engine was made
+    public long getPlayoutCount() {
+        return playoutCount.sum();
     }
 
+    public void setProgressiveWidening(boolean enabled) {
+        this.progressiveWidening = enabled;
+    }
 
-    private MCTSNode selectChild(MCTSNode node) {
-        if (node.children.isEmpty()) return null;
+    // Room for at least entries positions; 0 turns the table off
+    public void setTranspositionTable(int entries) {
+        stopPondering();
+        transpositions = entries > 0 ? new TranspositionTable(entries) : null;
+    }
 
-        MCTSNode best = null;
-        double bestValue = Double.NEGATIVE_INFINITY;
+    // Share of table lookups since the last clearTree that found their position, and that found
+    // more visits than the node had, i.e. statistics gathered through another move order
+    public double getTranspositionHitRate() {
+        TranspositionTable table = transpositions;
+        return table != null ? table.hitRate() : 0.0;
+    }
 
-        for (MCTSNode child : node.children) {
-            double exploitation = child.totalValue / (child.visits + 1e-8);
-            double exploration = explorationConstant *
-                    Math.sqrt(Math.log(node.visits + 1) / (child.visits + 1e-8));
-            double uctValue = exploitation + exploration;
+    public double getTranspositionShareRate() {
+        TranspositionTable table = transpositions;
+        return table != null ? table.shareRate() : 0.0;
+    }
 
-            if (policyNet != null) {
-                uctValue += 0.3 * child.prior;
-            }
+    public long getTranspositionBytes() {
+        TranspositionTable table = transpositions;
+        return table != null ? table.bytes() : 0;
+    }
 
-            if (uctValue > bestValue) {
-                bestValue = uctValue;
-                best = child;
-            }
-        }
+    public int getThreads() {
+        return threads;
+    }
 
-        return best;
+    public Parallelism getParallelism() {
+        return parallelism;
     }
 
 
-    private void expand(MCTSNode node, GameState state) {
-        Color currentPlayer = state.getCurrentPlayer();
-        List<AIMove> moves = generateMoves(state, currentPlayer);
+    public AIMove search(GameState rootState, Color aiColor, int iterations) {
+        return search(rootState, aiColor, SearchLimits.iterations(iterations));
+    }
+
+    public AIMove search(GameState rootState, Color aiColor, SearchLimits limits) {
+        stopPondering();
+        return runSearch(rootState, limits, false);
+    }
 
-        int maxChildren = 50;
-        moves = moves.size() > maxChildren ? moves.subList(0, maxChildren) : moves;
+    /*
+     * Starts searching state, the position the opponent is to move in, on a worker thread until
+     * stopPondering or the next search. The next search then continues from the subtree of the
+     * move actually played, and visits made while pondering count towards its iteration budget.
+     */
+    public synchronized void startPondering(GameState state) {
+        stopPondering();
+        // Root-parallel trees are not kept between searches
+        if (parallelism == Parallelism.ROOT && threads > 1) return;
+
+        GameState position = state.clone();
+        SearchLimits limits = SearchLimits.time(SearchLimits.UNLIMITED_TIME)
+                .withNodes(PONDER_MAX_NODES)
+                .withEarlyStop(false);
+        ponderTask = WORKERS.submit(() -> runSearch(position, limits, true));
+    }
 
-        double[] priors = null;
-        if (policyNet != null) {
+    public synchronized void stopPondering() {
+        if (ponderTask == null) return;
+        // The budget may not exist yet; keep stopping until the task ends
+        while (!ponderTask.isDone()) {
+            stopSearch();
             try {
-                double[] stateVec = encodeState(state, currentPlayer);
-                priors = policyNet.forward(stateVec);
-            } catch (Exception e) {
-                priors = null;
+                ponderTask.get(1, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // Still starting up
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                throw new RuntimeException("MCTS pondering failed", e.getCause());
             }
         }
+        ponderTask = null;
+        pondered = true;
+    }
 
-        for (int i = 0; i < moves.size(); i++) {
-            double prior = (priors != null && i < priors.length) ? priors[i] : 1.0 / moves.size();
-            GameState childState = state.clone();
-            MCTSNode child = new MCTSNode(node, moves.get(i), childState);
-            child.prior = prior;
-            node.children.add(child);
-        }
+    public synchronized boolean isPondering() {
+        return ponderTask != null;
     }
 
+    // Ends the running search, if any, as if its budget had run out; it still returns its best move
+    public void stopSearch() {
+        Budget budget = activeBudget;
+        if (budget != null) budget.cancelled = true;
+    }
 
-    private double evaluate(GameState state, Color aiColor) {
-        String winResult = checkWinCondition(state);
+    // Iterations the running search has started, or 0 between searches
+    public int getSearchProgress() {
+        Budget budget = activeBudget;
+        return budget != null ? Math.min(budget.started.get(), budget.iterations) : 0;
+    }
 
-        if (winResult != null) {
-            if (winResult.contains("Draw")) return 0.5;
-            boolean aiWon = (aiColor.equals(Color.WHITE) && winResult.contains("White wins")) ||
-                    (aiColor.equals(Color.BLACK) && winResult.contains("Black wins"));
-            return aiWon ? 1.0 : 0.0;
-        }
+    private AIMove runSearch(GameState rootState, SearchLimits limits, boolean ponder) {
+        long start = System.nanoTime();
+        long deadline = deadline(start, limits.moveTimeMillis());
+        try {
+            if (parallelism == Parallelism.ROOT && threads > 1) {
+                forgetTree();
+                return searchRootParallel(rootState, limits, start, deadline);
+            }
 
-        if (valueNet != null) {
-            double[] stateVec = encodeState(state, aiColor);
-            double[] output = valueNet.forward(stateVec);
-            return output[0];
+            boolean fromPonder = pondered;
+            pondered = false;
+            int root = reuseRoot(rootState);
+            NodeArena tree = arena;
+            if (ponder) recordPonderStart(tree, root);
+            // Visits made on the opponent's time count as done, so pondering shortens the reply
+            int credit = fromPonder ? Math.max(0, tree.visits(root) - carriedVisits) : 0;
+            Budget budget = new Budget(tree, root, limits.getMaxIterations(), limits.getMaxNodes(), start, deadline,
+                    limits.isEarlyStop(), credit, null);
+            activeBudget = budget;
+
+            // Every thread walks its own copy forward and then undoes back to the root
+            List<Future<?>> helpers = new ArrayList<>();
+            for (int t = 1; t < threads; t++) {
+                GameState state = rootState.clone();
+                helpers.add(WORKERS.submit(() -> runIterations(tree, root, state, budget, null)));
+            }
+            runIterations(tree, root, rootState.clone(), budget, null);
+            awaitAll(helpers);
+
+            lastRoot = root;
+            lastState = rootState.clone();
+
+            // Return move with highest visit count
+            return getBestMove(tree, root);
+        } finally {
+            activeBudget = null;
+            limits.charge((System.nanoTime() - start) / 1_000_000);
         }
+    }
 
-        return heuristicEval(state, aiColor);
+    private static long deadline(long start, long millis) {
+        if (millis >= Long.MAX_VALUE / 1_000_000) return Long.MAX_VALUE;
+        return start + millis * 1_000_000;
     }
 
+    /*
+     * What one search may still spend, shared by its threads. Iterations are claimed from
+     * started; once any limit is hit, or the leading root child is further ahead of the
+     * runner-up than the iterations left could close, stopped is set and every thread ends.
+     * Root-parallel trees each have a budget and follow the searching thread's one, which
+     * cancels them all.
+     */
+    private static final class Budget {
+        // Iterations between checks for an uncatchable leader
+        static final int EARLY_STOP_INTERVAL = 32;
+
+        final NodeArena tree;
+        final int root;
+        final int iterations;
+        final int maxNodes;
+        final long start;
+        final long deadline;
+        final boolean earlyStop;
+        final int credit;
+        final Budget leader;
+        final AtomicInteger started;
+        volatile boolean stopped;
+        volatile boolean cancelled;
+
+        // A root-parallel tree's share; early stopping needs the merged counts, so it runs in full
+        Budget(NodeArena tree, int root, int iterations, int maxNodes, long start, long deadline, Budget leader) {
+            this(tree, root, iterations, maxNodes, start, deadline, false, 0, leader);
+        }
 
-    private double heuristicEval(GameState state, Color aiColor) {
-        HiveBoard board = state.getBoard();
-        double score = 0.5;
+        Budget(NodeArena tree, int root, int iterations, int maxNodes, long start, long deadline, boolean earlyStop,
+               int credit, Budget leader) {
+            this.leader = leader;
+            this.credit = credit;
+            this.started = new AtomicInteger(credit);
+            this.tree = tree;
+            this.root = root;
+            this.iterations = iterations;
+            this.maxNodes = maxNodes;
+            this.start = start;
+            this.deadline = deadline;
+            this.earlyStop = earlyStop;
+        }
 
-        // Find queens - use copy to avoid ConcurrentModificationException
-        HexCoord aiQueenPos = null;
-        HexCoord oppQueenPos = null;
+        // Claims the next iteration, or returns -1 when the search should stop
+        int next() {
+            if (stopped || cancelled || leader != null && leader.cancelled) return -1;
+            // An interrupted searching thread ends the whole search
+            if (Thread.currentThread().isInterrupted()) {
+                cancelled = true;
+                return -1;
+            }
+            int i = started.getAndIncrement();
+            long now = System.nanoTime();
+            if (i >= iterations || now > deadline || tree.size() >= maxNodes || tree.isProven(root)) {
+                stopped = true;
+                return -1;
+            }
+            if (earlyStop && i > credit && i % EARLY_STOP_INTERVAL == 0 && leaderIsSafe(i, now)) {
+                stopped = true;
+                return -1;
+            }
+            return i;
+        }
 
-        Set<HexCoord> coordinates = new HashSet<>(board.getBoard().keySet());
-        for (HexCoord coord : coordinates) {
-            List<Piece> stack = board.getStackAt(coord);
-            if (stack != null && !stack.isEmpty()) {
-                Piece piece = stack.get(0);
-                if (piece.getType() == PieceType.QUEEN) {
-                    if (piece.getColor().equals(aiColor)) {
-                        aiQueenPos = coord;
-                    } else {
-                        oppQueenPos = coord;
-                    }
+        private boolean leaderIsSafe(int done, long now) {
+            long left = iterations - done;
+            if (deadline != Long.MAX_VALUE) {
+                // Iterations still to come at the rate so far
+                double perNano = (double) (done - credit) / Math.max(1, now - start);
+                left = Math.min(left, (long) (perNano * (deadline - now)));
+            }
+            if (left >= Integer.MAX_VALUE) return false;
+
+            int best = 0;
+            int second = 0;
+            int first = tree.firstChild(root);
+            for (int child = first; child < first + tree.childCount(root); child++) {
+                int visits = tree.visits(child);
+                if (visits > best) {
+                    second = best;
+                    best = visits;
+                } else if (visits > second) {
+                    second = visits;
                 }
             }
+            return best > 0 && best - second > left;
         }
+    }
+
+    // Stops pondering and drops the kept tree, e.g. when the networks change between games
+    public void clearTree() {
+        stopPondering();
+        forgetTree();
+        pondered = false;
+        if (transpositions != null) transpositions.clear();
+    }
+
+    private void forgetTree() {
+        lastRoot = NodeArena.NONE;
+        lastState = null;
+    }
 
-        // Evaluate queen safety
-        if (aiQueenPos != null) {
-            int aiQueenNeighbors = countNeighbors(board, aiQueenPos);
-            // Penalize surrounded queen
-            score -= aiQueenNeighbors * 0.08;
+    // Nodes in the tree of the last shared-tree search, and the memory they and their moves take
+    public int getTreeSize() {
+        return arena.size();
+    }
+
+    public long getTreeBytes() {
+        return arena.bytesUsed();
+    }
+
+    /*
+     * If rootState is the last searched position, its tree is searched further in place. If it
+     * follows it by one or two plies (our move and the reply), the matching subtree is copied
+     * into the spare arena and becomes the new root with its statistics, and every other node
+     * is recycled. Otherwise the search starts afresh.
+     */
+    private int reuseRoot(GameState rootState) {
+        int previous = lastRoot;
+        int found = NodeArena.NONE;
+        if (previous != NodeArena.NONE) {
+            found = findDescendant(previous, lastState, rootState.getHash(), 2);
         }
+        carriedVisits = found != NodeArena.NONE ? visitsBeforePondering(found) : 0;
+        forgetTree();
 
-        if (oppQueenPos != null) {
-            int oppQueenNeighbors = countNeighbors(board, oppQueenPos);
-            // Reward surrounding opponent queen
-            score += oppQueenNeighbors * 0.08;
+        if (found == NodeArena.NONE) {
+            arena.reset();
+            return arena.newRoot();
+        }
+        if (found == previous) {
+            return found;
         }
 
-        // Piece mobility
-        int aiMobility = countMobility(state, aiColor);
-        int oppMobility = countMobility(state, getOpponent(aiColor));
-        score += (aiMobility - oppMobility) * 0.01;
+        spare.reset();
+        int root = spare.copySubtree(arena, found);
+        NodeArena old = arena;
+        arena = spare;
+        spare = old;
+        spare.reset();
+        return root;
+    }
 
-        // Control of center
-        score += evaluatePosition(board, aiColor) * 0.05;
+    private void recordPonderStart(NodeArena tree, int root) {
+        ponderRoot = root;
+        ponderRootVisits = tree.visits(root);
+        ponderFirstChild = tree.firstChild(root);
+        ponderChildVisits = new int[tree.childCount(root)];
+        for (int i = 0; i < ponderChildVisits.length; i++) {
+            ponderChildVisits[i] = tree.visits(ponderFirstChild + i);
+        }
+    }
 
-        // Penalty for long games
-        int turnCount = state.getTurnCount();
-        if (turnCount > 60) {
-            score -= (turnCount - 60) * 0.01;
+    /*
+     * Visits node had when the last pondering began. Only the ponder root and its children can
+     * be reused after pondering; a child added while pondering had none.
+     */
+    private int visitsBeforePondering(int node) {
+        if (node == ponderRoot) return ponderRootVisits;
+        int offset = node - ponderFirstChild;
+        return offset >= 0 && offset < ponderChildVisits.length ? ponderChildVisits[offset] : 0;
+    }
+
+    private int findDescendant(int node, GameState state, long hash, int plies) {
+        if (state.getHash() == hash) return node;
+        if (plies == 0) return NodeArena.NONE;
+
+        int depth = state.getUndoDepth();
+        int first = arena.firstChild(node);
+        for (int child = first; child < first + arena.childCount(node); child++) {
+            play(state, arena.move(child));
+            int found = findDescendant(child, state, hash, plies - 1);
+            state.undoTo(depth);
+            if (found != NodeArena.NONE) return found;
         }
+        return NodeArena.NONE;
+    }
 
-        return Math.max(0.0, Math.min(1.0, score));
+    // Independent trees with differently shuffled move orders; their root visit counts are summed per move
+    private AIMove searchRootParallel(GameState rootState, SearchLimits limits, long start, long deadline) {
+        int iterations = limits.getMaxIterations();
+        int perTree = iterations == SearchLimits.UNLIMITED ? iterations : (iterations + threads - 1) / threads;
+        int nodesPerTree = limits.getMaxNodes() == SearchLimits.UNLIMITED
+                ? SearchLimits.UNLIMITED : Math.max(1, limits.getMaxNodes() / threads);
+        while (rootParallelArenas.size() < threads) {
+            rootParallelArenas.add(new NodeArena());
+        }
+
+        NodeArena own = rootParallelArenas.get(0);
+        own.reset();
+        int ownRoot = own.newRoot();
+        Budget ownBudget = new Budget(own, ownRoot, perTree, nodesPerTree, start, deadline, null);
+        activeBudget = ownBudget;
+
+        List<Future<?>> helpers = new ArrayList<>();
+        for (int t = 1; t < threads; t++) {
+            NodeArena tree = rootParallelArenas.get(t);
+            tree.reset();
+            int root = tree.newRoot();
+            GameState state = rootState.clone();
+            Random random = new Random(seeds.nextLong());
+            Budget budget = new Budget(tree, root, perTree, nodesPerTree, start, deadline, ownBudget);
+            helpers.add(WORKERS.submit(() -> runIterations(tree, root, state, budget, random)));
+        }
+        runIterations(own, ownRoot, rootState.clone(), ownBudget, new Random(seeds.nextLong()));
+        awaitAll(helpers);
+
+        // Proven losses are only counted in case every move is lost, when the most visited one is played
+        Map<AIMove, Integer> visits = new HashMap<>();
+        Map<AIMove, Integer> lostVisits = new HashMap<>();
+        for (int t = 0; t < threads; t++) {
+            // Each tree's root is its first node
+            NodeArena tree = rootParallelArenas.get(t);
+            int first = tree.firstChild(0);
+            for (int child = first; child < first + tree.childCount(0); child++) {
+                // Any tree's proof holds for all of them
+                if (tree.proof(child) == NodeArena.PROVEN_WIN) return tree.move(child);
+                Map<AIMove, Integer> target = tree.proof(child) == NodeArena.PROVEN_LOSS ? lostVisits : visits;
+                target.merge(tree.move(child), tree.visits(child), Integer::sum);
+            }
+        }
+        lostVisits.keySet().forEach(visits::remove);
+
+        AIMove best = mostVisited(visits);
+        return best != null ? best : mostVisited(lostVisits);
     }
 
-    private int countNeighbors(HiveBoard board, HexCoord coord) {
-        int count = 0;
-        for (HexCoord neighbor : coord.getNeighbors()) {
-            if (board.containsCoord(neighbor)) count++;
+    private static AIMove mostVisited(Map<AIMove, Integer> visits) {
+        AIMove best = null;
+        int maxVisits = -1;
+        for (Map.Entry<AIMove, Integer> entry : visits.entrySet()) {
+            if (entry.getValue() > maxVisits) {
+                maxVisits = entry.getValue();
+                best = entry.getKey();
+            }
         }
-        return count;
+        return best;
     }
 
-    private int countMobility(GameState state, Color color) {
-        int moves = 0;
-        Set<HexCoord> coordinates = new HashSet<>(state.getBoard().getBoard().keySet());
-        for (HexCoord coord : coordinates) {
-            Piece piece = state.getBoard().getTopPieceAt(coord);
-            if (piece != null && piece.getColor().equals(color)) {
-                MoveCalculator calc = new MoveCalculator(
-                        state.getBoard(), new MovementValidator(state.getBoard()));
-                moves += calc.getValidMoves(piece, coord).size();
+    // Waits even when interrupted, since the trees are reused as soon as this returns; helpers end once the budget is cancelled
+    private void awaitAll(List<Future<?>> helpers) {
+        boolean interrupted = false;
+        for (int i = 0; i < helpers.size(); ) {
+            try {
+                helpers.get(i).get();
+                i++;
+            } catch (InterruptedException e) {
+                interrupted = true;
+                stopSearch();
+            } catch (ExecutionException e) {
+                throw new RuntimeException("MCTS worker failed", e.getCause());
             }
         }
-        return moves;
+        if (interrupted) Thread.currentThread().interrupt();
     }
 
-    private double evaluatePosition(HiveBoard board, Color color) {
-        double score = 0.0;
-        Set<HexCoord> coordinates = new HashSet<>(board.getBoard().keySet());
-        for (HexCoord coord : coordinates) {
-            List<Piece> stack = board.getStackAt(coord);
-            if (stack != null && !stack.isEmpty()) {
-                Piece piece = stack.get(0);
-                if (piece.getColor().equals(color)) {
-                    double distance = Math.sqrt(coord.getQ() * coord.getQ() + coord.getR() * coord.getR());
-                    score += 1.0 / (1.0 + distance);
+    // random, if set, shuffles each node's moves so that independent trees explore differently
+    private void runIterations(NodeArena tree, int root, GameState state, Budget budget, Random random) {
+        int rootDepth = state.getUndoDepth();
+        tree.setHash(root, state.getHash());
+
+        while (budget.next() >= 0) {
+            int node = root;
+            tree.addVirtualLoss(node);
+
+            int selectionDepth = 0;
+            while (!tree.isLeaf(node) && !isTerminal(state) && selectionDepth < 100) {
+                int next = selectChild(tree, node);
+                if (next == NodeArena.NONE) break;
+                node = next;
+                tree.addVirtualLoss(node);
+                descend(tree, node, state);
+                selectionDepth++;
+            }
+
+            if (!isTerminal(state) && tree.visits(node) > 0) {
+                // Priors come first, as a batched evaluation may wait for other threads' leaves
+                double[] priors = tree.isLeaf(node) ? policyPriors(state) : null;
+                // Only one thread expands a node; the others wait here and then descend into it
+                synchronized (tree.expandLock(node)) {
+                    if (tree.isLeaf(node)) {
+                        expand(tree, node, state, random, priors);
+                    }
                 }
+                int next = selectChild(tree, node);
+                if (next != NodeArena.NONE) {
+                    node = next;
+                    tree.addVirtualLoss(node);
+                    descend(tree, node, state);
+                }
+            }
+
+            // Simulation: evaluate position for the player who made the last move
+            double value = evaluate(state, getOpponent(state.getCurrentPlayer()));
+            if (solver && !tree.isProven(node)) {
+                proveTerminal(tree, node, state);
             }
+
+            // Backpropagation: update statistics
+            backpropagate(tree, node, value);
+
+            state.undoTo(rootDepth);
         }
-        return score;
     }
 
+    /*
+     * MCTS-Solver: a finished game is a proven win or loss for the player who moved into it.
+     * Going up, a child won by the player to move makes the parent lost for the player who
+     * moved into the parent; a parent whose children are all lost, and who has every legal
+     * move as a child, is won. Draws stay unproven.
+     */
+    private void proveTerminal(NodeArena tree, int node, GameState state) {
+        GameResult result = state.getResult();
+        if (!result.isOver() || result == GameResult.DRAW) return;
+
+        boolean moverWon = result.isWinFor(getOpponent(state.getCurrentPlayer()));
+        tree.prove(node, moverWon ? NodeArena.PROVEN_WIN : NodeArena.PROVEN_LOSS);
+
+        for (int parent = tree.parent(node); parent != NodeArena.NONE; parent = tree.parent(node)) {
+            if (tree.isProven(parent)) break;
+            if (tree.proof(node) == NodeArena.PROVEN_WIN) {
+                tree.prove(parent, NodeArena.PROVEN_LOSS);
+            } else if (allChildrenLost(tree, parent)) {
+                tree.prove(parent, NodeArena.PROVEN_WIN);
+            } else {
+                break;
+            }
+            node = parent;
+        }
+    }
 
-    private void backpropagate(MCTSNode node, double value) {
-        while (node != null) {
-            node.visits++;
-            node.totalValue += value;
-            node = node.parent;
-            value = 1.0 - value;
+    private boolean allChildrenLost(NodeArena tree, int node) {
+        if (tree.isPartial(node)) return false;
+        int first = tree.firstChild(node);
+        for (int child = first; child < first + tree.childCount(node); child++) {
+            if (tree.proof(child) != NodeArena.PROVEN_LOSS) return false;
         }
+        return true;
     }
 
-    private AIMove getBestMove(MCTSNode root) {
-        MCTSNode best = null;
-        int maxVisits = -1;
+    private void play(GameState state, AIMove move) {
+        move.execute(state);
+        state.nextPlayer();
+    }
+
+    private void descend(NodeArena tree, int node, GameState state) {
+        play(state, tree.move(node));
+        tree.setHash(node, state.getHash());
+    }
+
+
+    private int selectChild(NodeArena tree, int node) {
+        int count = tree.childCount(node);
+        if (count == 0) return NodeArena.NONE;
+        // Widening opens this many children, not counting ones proven lost
+        int open = progressiveWidening
+                ? 1 + (int) (WIDENING_SCALE * Math.pow(tree.visits(node), WIDENING_EXPONENT))
+                : count;
 
-        for (MCTSNode child : root.children) {
-            if (child.visits > maxVisits) {
-                maxVisits = child.visits;
+        int best = NodeArena.NONE;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        TranspositionTable table = transpositions;
+
+        // Visits still in flight on other threads count as losses, steering threads apart
+        int parentVisits = tree.visits(node) + tree.virtualLoss(node);
+        double logParent = Math.log(parentVisits + 1);
+        int first = tree.firstChild(node);
+        for (int child = first; child < first + count && open > 0; child++) {
+            if (solver) {
+                int proof = tree.proof(child);
+                // A proven win decides the node; a proven loss is never worth another visit
+                if (proof == NodeArena.PROVEN_WIN) return child;
+                if (proof == NodeArena.PROVEN_LOSS) continue;
+            }
+            open--;
+
+            int childVisits = tree.visits(child) + tree.virtualLoss(child);
+            double exploitation = tree.valueSum(child) / (childVisits + 1e-8);
+            // A transposed position seen more often elsewhere gives the better estimate
+            long hash = tree.hash(child);
+            if (table != null && hash != 0) {
+                int slot = table.find(hash);
+                if (slot >= 0) {
+                    int shared = table.visits(slot);
+                    double sum = table.valueSum(slot);
+                    if (shared > childVisits && table.holds(slot, hash)) {
+                        exploitation = sum / (shared + tree.virtualLoss(child));
+                        table.recordShared();
+                    }
+                }
+            }
+            double exploration = explorationConstant * Math.sqrt(logParent / (childVisits + 1e-8));
+            double uctValue = exploitation + exploration;
+
+            if (policyNet != null) {
+                uctValue += 0.3 * tree.prior(child);
+            }
+
+            if (uctValue > bestValue) {
+                bestValue = uctValue;
                 best = child;
             }
         }
 
-        return best != null ? best.move : null;
+        return best;
     }
 
-    private boolean isTerminal(GameState state) {
-        return checkWinCondition(state) != null;
-    }
-
-
-    private String checkWinCondition(GameState state) {
-        HiveBoard board = state.getBoard();
-        boolean whiteQueenSurrounded = false;
-        boolean blackQueenSurrounded = false;
-
-        Set<HexCoord> coordinates = new HashSet<>(board.getBoard().keySet());
-        for (HexCoord coord : coordinates) {
-            List<Piece> stack = board.getStackAt(coord);
-            if (stack != null && !stack.isEmpty()) {
-                Piece piece = stack.get(0); // Bottom piece
-                if (piece.getType() == PieceType.QUEEN) {
-                    int neighbors = 0;
-                    for (HexCoord neighbor : coord.getNeighbors()) {
-                        if (board.containsCoord(neighbor)) {
-                            neighbors++;
-                        }
-                    }
 
-                    if (neighbors == 6) {
-                        if (piece.getColor().equals(Color.WHITE)) {
-                            whiteQueenSurrounded = true;
-                        } else {
-                            blackQueenSurrounded = true;
-                        }
-                    }
-                }
-            }
+    /*
+     * With progressive widening every legal move becomes a child, best first by policy prior or,
+     * without a policy network, by Heuristics.moveScore; selection only opens more of them as the node's
+     * visits grow. Without widening the first MAX_CHILDREN moves are kept in generation order.
+     */
+    // Policy output for the side to move, or null without a policy network or if it fails
+    private double[] policyPriors(GameState state) {
+        if (policyNet == null) return null;
+        try {
+            return networkOutput(policyNet, policyQueue, policyCache, state, state.getCurrentPlayer());
+        } catch (Exception e) {
+            return null;
         }
+    }
 
-        if (whiteQueenSurrounded && blackQueenSurrounded) {
-            return "Draw! Both Queens surrounded!";
-        } else if (whiteQueenSurrounded) {
-            return "Black wins! White Queen surrounded!";
-        } else if (blackQueenSurrounded) {
-            return "White wins! Black Queen surrounded!";
+    private void expand(NodeArena tree, int node, GameState state, Random random, double[] priors) {
+        Color currentPlayer = state.getCurrentPlayer();
+        List<AIMove> moves = MoveGenerator.generateLegalMoves(state, currentPlayer);
+        if (random != null) {
+            Collections.shuffle(moves, random);
         }
+        boolean partial = !progressiveWidening && moves.size() > MAX_CHILDREN;
+        if (partial) {
+            moves = moves.subList(0, MAX_CHILDREN);
+        }
+
+        if (progressiveWidening && moves.size() > 1) {
+            int count = moves.size();
+            double[] scores = new double[count];
+            for (int i = 0; i < count; i++) {
+                scores[i] = priors != null ? (i < priors.length ? priors[i] : 0.0) : Heuristics.moveScore(state, moves.get(i));
+            }
 
-        return null;
+            // Stable, so equal scores keep generation (or shuffled) order
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) order[i] = i;
+            Arrays.sort(order, (a, b) -> Double.compare(scores[b], scores[a]));
+
+            List<AIMove> sorted = new ArrayList<>(count);
+            double[] sortedPriors = priors != null ? new double[count] : null;
+            for (int i = 0; i < count; i++) {
+                sorted.add(moves.get(order[i]));
+                if (sortedPriors != null) sortedPriors[i] = scores[order[i]];
+            }
+            moves = sorted;
+            priors = sortedPriors;
+        }
+
+        tree.expand(node, moves, priors, partial);
     }
 
-    private List<AIMove> generateMoves(GameState state, Color color) {
-        // Create temporary AI to access the public method
-        HiveAI tempAI = new HiveAI(false);
-        return tempAI.generateLegalMoves(state, color);
+    private double evaluate(GameState state, Color aiColor) {
+        GameResult result = state.getResult();
+
+        if (result.isOver()) {
+            if (result == GameResult.DRAW) return 0.5;
+            return result.isWinFor(aiColor) ? 1.0 : 0.0;
+        }
+
+        if (rolloutDepth > 0) {
+            playoutCount.increment();
+            return playouts.get().run(state, aiColor, rolloutDepth, rolloutBias);
+        }
+
+        if (valueNet != null) {
+            return networkOutput(valueNet, valueQueue, valueCache, state, aiColor)[0];
+        }
+
+        return Heuristics.evaluate(state, aiColor);
     }
 
-    private double[] encodeState(GameState state, Color color) {
-        // Create temporary AI to access the public method
-        HiveAI tempAI = new HiveAI(false);
-        return tempAI.encodeGameState(state, color);
+
+    // Output for state encoded for perspective, from the cache if it has it, else batched or direct
+    private double[] networkOutput(NeuralNetwork network, EvaluationQueue queue, EvaluationCache cache,
+                                   GameState state, Color perspective) {
+        long key = 0;
+        if (cache != null) {
+            key = EvaluationCache.key(state, perspective);
+            double[] cached = cache.get(key);
+            if (cached != null) return cached;
+        }
+        double[] input = StateEncoder.encode(state, perspective);
+        double[] output = queue != null ? queue.evaluate(input) : network.forward(input);
+        if (cache != null) cache.put(key, output);
+        return output;
     }
 
-    private Color getOpponent(Color color) {
-        return color.equals(Color.WHITE) ? Color.BLACK : Color.WHITE;
+
+    private void backpropagate(NodeArena tree, int node, double value) {
+        TranspositionTable table = transpositions;
+        while (node != NodeArena.NONE) {
+            tree.update(node, value);
+            if (table != null && tree.hash(node) != 0) {
+                table.update(tree.hash(node), value);
+            }
+            node = tree.parent(node);
+            value = 1.0 - value;
+        }
     }
-}
 
+    // Most visited move, except that a proven win comes first and proven losses come last
+    private AIMove getBestMove(NodeArena tree, int root) {
+        int best = NodeArena.NONE;
+        int maxVisits = -1;
+        boolean bestLost = true;
+
+        int first = tree.firstChild(root);
+        for (int child = first; child < first + tree.childCount(root); child++) {
+            int proof = tree.proof(child);
+            if (proof == NodeArena.PROVEN_WIN) return tree.move(child);
+            boolean lost = proof == NodeArena.PROVEN_LOSS;
+            if (lost && !bestLost) continue;
+            if (bestLost && !lost || tree.visits(child) > maxVisits) {
+                bestLost = lost;
+                maxVisits = tree.visits(child);
+                best = child;
+            }
+        }
 
-class MCTSNode {
-    MCTSNode parent;
-    AIMove move;
-    GameState state;
-    List<MCTSNode> children;
-    int visits;
-    double totalValue;
-    double prior;
+        return best != NodeArena.NONE ? tree.move(best) : null;
+    }
 
-    public MCTSNode(MCTSNode parent, AIMove move, GameState state) {
-        this.parent = parent;
-        this.move = move;
-        this.state = state;
-        this.children = new ArrayList<>();
-        this.visits = 0;
-        this.totalValue = 0.0;
-        this.prior = 1.0;
+    private boolean isTerminal(GameState state) {
+        return state.getResult().isOver();
     }
 
-    public boolean isLeaf() {
-        return children.isEmpty();
+
+    private Color getOpponent(Color color) {
+        return color.equals(Color.WHITE) ? Color.BLACK : Color.WHITE;
     }
-}
\ No newline at end of file
+}
+
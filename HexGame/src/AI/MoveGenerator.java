@@ -0,0 +1,67 @@
+package AI;
+
+import Game.*;
+import java.awt.Color;
+import java.util.*;
+
+/**
+ * Stateless legal move generation shared by the AI, the search and the trainers
+ */
+public final class MoveGenerator {
+
+    private MoveGenerator() {
+    }
+
+    public static List<AIMove> generateLegalMoves(GameState state, Color color) {
+        List<AIMove> moves = new ArrayList<>();
+        HiveBoard board = state.getBoard();
+
+        // Placement moves - use ACTUAL pieces from reserve
+        // The legal cells depend only on colour, so they are read from the frontier once
+        List<Piece> reserve = state.getReserve(color);
+        if (!reserve.isEmpty()) {
+            List<HexCoord> validPlacements = getValidPlacementCoords(board, color);
+            for (Piece piece : reserve) {
+                if (state.mustPlaceQueen() && piece.getType() != PieceType.QUEEN) {
+                    continue;
+                }
+
+                for (HexCoord coord : validPlacements) {
+                    // Use the ACTUAL piece from reserve, not a new one
+                    moves.add(new AIMove(piece, null, coord, MoveType.PLACE));
+                }
+            }
+        }
+
+        // Movement moves (only if queen is placed)
+        if (state.isQueenPlaced(color)) {
+            // Create a copy of the coordinates to avoid ConcurrentModificationException
+            Set<HexCoord> coordinates = new HashSet<>(board.getBoard().keySet());
+            MoveCalculator calc = new MoveCalculator(board, new MovementValidator(board));
+            for (HexCoord coord : coordinates) {
+                Piece topPiece = board.getTopPieceAt(coord);
+                if (topPiece != null && topPiece.getColor().equals(color)) {
+                    List<HexCoord> validMoves = calc.getValidMoves(topPiece, coord);
+                    for (HexCoord dest : validMoves) {
+                        moves.add(new AIMove(topPiece, coord, dest, MoveType.MOVE));
+                    }
+                }
+            }
+        }
+
+        return moves;
+    }
+
+    private static List<HexCoord> getValidPlacementCoords(HiveBoard board, Color color) {
+        int[] cells = new int[PackedBoard.MAX_FRONTIER];
+        int n = new PlacementValidator(board).getValidPlacements(color.equals(Color.WHITE), cells);
+
+        // Any piece on the board anchors the torus indices back to absolute coordinates
+        HexCoord anchor = board.isEmpty() ? HexCoord.of(0, 0) : board.getAllCoordinates().iterator().next();
+        List<HexCoord> coords = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            coords.add(PackedBoard.toCoord(cells[i], anchor));
+        }
+        return coords;
+    }
+}
@@ -0,0 +1,282 @@
+package AI;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * MCTS nodes held in parallel primitive arrays instead of one object per node.
+ *
+ * Node i lives at offset i & CHUNK_MASK of chunk i >> CHUNK_BITS. Chunks are never moved,
+ * so threads can read nodes while others allocate, and reset() hands the same memory to
+ * the next search. A node's children occupy [firstChild, firstChild + childCount) and are
+ * allocated together when it is expanded; the child count is written last, so a reader
+ * that sees it also sees the children.
+ */
+final class NodeArena {
+    static final int NONE = -1;
+
+    // Game-theoretic value of a node for the player who moved into it, once a search proves it
+    static final int UNPROVEN = 0;
+    static final int PROVEN_WIN = 1;
+    static final int PROVEN_LOSS = 2;
+    // Flag for a node whose children leave out some legal moves, so it can never be proven lost
+    private static final int PARTIAL = 4;
+
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int MAX_CHUNKS = 1 << 12;
+
+    // Five ints, a long, two doubles, a byte and a compressed move reference
+    static final int BYTES_PER_NODE = 5 * 4 + 8 + 2 * 8 + 1 + 4;
+    // The AIMove each node but a root points to: a 12-byte header, four compressed references
+    // and a double, padded to 8. Its piece and coordinates are shared, so they cost nothing more
+    static final int BYTES_PER_MOVE = 40;
+
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final VarHandle DOUBLES = MethodHandles.arrayElementVarHandle(double[].class);
+    private static final VarHandle BYTES = MethodHandles.arrayElementVarHandle(byte[].class);
+    private static final int LOCK_STRIPES = 64;
+
+    private static final class Chunk {
+        final int[] parent = new int[CHUNK_SIZE];
+        final int[] firstChild = new int[CHUNK_SIZE];
+        final int[] childCount = new int[CHUNK_SIZE];
+        final int[] visits = new int[CHUNK_SIZE];
+        final int[] virtualLoss = new int[CHUNK_SIZE];
+        final double[] valueSum = new double[CHUNK_SIZE];
+        final double[] prior = new double[CHUNK_SIZE];
+        // Position hash, 0 until a search first plays down to the node
+        final long[] hash = new long[CHUNK_SIZE];
+        final byte[] proof = new byte[CHUNK_SIZE];
+        final AIMove[] move = new AIMove[CHUNK_SIZE];
+    }
+
+    private final Chunk[] chunks = new Chunk[MAX_CHUNKS];
+    private volatile int chunkCount;
+    private final AtomicInteger size = new AtomicInteger();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final Object[] expandLocks = new Object[LOCK_STRIPES];
+
+    NodeArena() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+            expandLocks[i] = new Object();
+        }
+    }
+
+    // Forget every node; the chunks stay allocated for the next search
+    void reset() {
+        int used = size.getAndSet(0);
+        for (int c = 0; c < chunkCount && c << CHUNK_BITS < used; c++) {
+            java.util.Arrays.fill(chunks[c].move, null);
+        }
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    // Node arrays in use plus the moves they hold
+    long bytesUsed() {
+        int nodes = size();
+        return (long) nodes * BYTES_PER_NODE + (long) Math.max(0, nodes - 1) * BYTES_PER_MOVE;
+    }
+
+    // Node arrays allocated, used or not, plus the moves held
+    long bytesReserved() {
+        int nodes = size();
+        return (long) chunkCount * CHUNK_SIZE * BYTES_PER_NODE + (long) Math.max(0, nodes - 1) * BYTES_PER_MOVE;
+    }
+
+    int newRoot() {
+        int root = allocate(1);
+        init(root, NONE, null, 1.0);
+        return root;
+    }
+
+    // Appends one child per move; priors may be null for a uniform prior; partial if moves leaves out legal moves
+    void expand(int node, List<AIMove> moves, double[] priors, boolean partial) {
+        int count = moves.size();
+        if (count == 0) return;
+
+        int first = allocate(count);
+        for (int i = 0; i < count; i++) {
+            double prior = (priors != null && i < priors.length) ? priors[i] : 1.0 / count;
+            init(first + i, node, moves.get(i), prior);
+        }
+        Chunk chunk = chunk(node);
+        chunk.firstChild[node & CHUNK_MASK] = first;
+        if (partial) chunk.proof[node & CHUNK_MASK] |= PARTIAL;
+        INTS.setRelease(chunk.childCount, node & CHUNK_MASK, count);
+    }
+
+    private int allocate(int count) {
+        int start = size.getAndAdd(count);
+        int lastChunk = (start + count - 1) >> CHUNK_BITS;
+        if (lastChunk >= chunkCount) {
+            synchronized (chunks) {
+                if (lastChunk >= MAX_CHUNKS) {
+                    throw new IllegalStateException("MCTS node arena is full");
+                }
+                for (int c = chunkCount; c <= lastChunk; c++) {
+                    chunks[c] = new Chunk();
+                    chunkCount = c + 1;
+                }
+            }
+        }
+        return start;
+    }
+
+    private void init(int node, int parent, AIMove move, double prior) {
+        Chunk chunk = chunk(node);
+        int i = node & CHUNK_MASK;
+        chunk.parent[i] = parent;
+        chunk.firstChild[i] = NONE;
+        chunk.childCount[i] = 0;
+        chunk.visits[i] = 0;
+        chunk.virtualLoss[i] = 0;
+        chunk.valueSum[i] = 0.0;
+        chunk.prior[i] = prior;
+        chunk.hash[i] = 0L;
+        chunk.proof[i] = 0;
+        chunk.move[i] = move;
+    }
+
+    private Chunk chunk(int node) {
+        return chunks[node >> CHUNK_BITS];
+    }
+
+    int parent(int node) {
+        return chunk(node).parent[node & CHUNK_MASK];
+    }
+
+    int firstChild(int node) {
+        return chunk(node).firstChild[node & CHUNK_MASK];
+    }
+
+    int childCount(int node) {
+        return (int) INTS.getAcquire(chunk(node).childCount, node & CHUNK_MASK);
+    }
+
+    boolean isLeaf(int node) {
+        return childCount(node) == 0;
+    }
+
+    AIMove move(int node) {
+        return chunk(node).move[node & CHUNK_MASK];
+    }
+
+    double prior(int node) {
+        return chunk(node).prior[node & CHUNK_MASK];
+    }
+
+    long hash(int node) {
+        return chunk(node).hash[node & CHUNK_MASK];
+    }
+
+    // Every thread that reaches the node writes the same value, so no ordering is needed
+    void setHash(int node, long hash) {
+        chunk(node).hash[node & CHUNK_MASK] = hash;
+    }
+
+    int proof(int node) {
+        return (byte) BYTES.getOpaque(chunk(node).proof, node & CHUNK_MASK) & 3;
+    }
+
+    boolean isProven(int node) {
+        return proof(node) != UNPROVEN;
+    }
+
+    boolean isPartial(int node) {
+        return ((byte) BYTES.getOpaque(chunk(node).proof, node & CHUNK_MASK) & PARTIAL) != 0;
+    }
+
+    // Proofs never change once set, so racing threads can only write the same value
+    void prove(int node, int proof) {
+        Chunk chunk = chunk(node);
+        int i = node & CHUNK_MASK;
+        BYTES.setOpaque(chunk.proof, i, (byte) (chunk.proof[i] | proof));
+    }
+
+    int visits(int node) {
+        return (int) INTS.getOpaque(chunk(node).visits, node & CHUNK_MASK);
+    }
+
+    int virtualLoss(int node) {
+        return (int) INTS.getOpaque(chunk(node).virtualLoss, node & CHUNK_MASK);
+    }
+
+    double valueSum(int node) {
+        return (double) DOUBLES.getOpaque(chunk(node).valueSum, node & CHUNK_MASK);
+    }
+
+    // Locks for statistics and for expansion; nodes share a fixed set of stripes of each
+    private Object lock(int node) {
+        return locks[node & (LOCK_STRIPES - 1)];
+    }
+
+    Object expandLock(int node) {
+        return expandLocks[node & (LOCK_STRIPES - 1)];
+    }
+
+    void addVirtualLoss(int node) {
+        Chunk chunk = chunk(node);
+        synchronized (lock(node)) {
+            chunk.virtualLoss[node & CHUNK_MASK]++;
+        }
+    }
+
+    // Replaces one virtual loss taken on the way down with the real result
+    void update(int node, double value) {
+        Chunk chunk = chunk(node);
+        int i = node & CHUNK_MASK;
+        synchronized (lock(node)) {
+            chunk.virtualLoss[i]--;
+            chunk.visits[i]++;
+            chunk.valueSum[i] += value;
+        }
+    }
+
+    // Copies the subtree under node in source into this arena and returns its new root
+    int copySubtree(NodeArena source, int node) {
+        int root = allocate(1);
+        init(root, NONE, null, source.prior(node));
+        copyStats(source, node, root);
+
+        int[] queue = new int[source.size() * 2];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = node;
+        queue[tail++] = root;
+        while (head < tail) {
+            int from = queue[head++];
+            int to = queue[head++];
+            int count = source.childCount(from);
+            if (count == 0) continue;
+
+            int first = allocate(count);
+            int sourceFirst = source.firstChild(from);
+            for (int i = 0; i < count; i++) {
+                init(first + i, to, source.move(sourceFirst + i), source.prior(sourceFirst + i));
+                copyStats(source, sourceFirst + i, first + i);
+                queue[tail++] = sourceFirst + i;
+                queue[tail++] = first + i;
+            }
+            Chunk chunk = chunk(to);
+            chunk.firstChild[to & CHUNK_MASK] = first;
+            chunk.childCount[to & CHUNK_MASK] = count;
+        }
+        return root;
+    }
+
+    private void copyStats(NodeArena source, int from, int to) {
+        Chunk chunk = chunk(to);
+        chunk.visits[to & CHUNK_MASK] = source.visits(from);
+        chunk.hash[to & CHUNK_MASK] = source.hash(from);
+        chunk.proof[to & CHUNK_MASK] = source.chunk(from).proof[from & CHUNK_MASK];
+        chunk.valueSum[to & CHUNK_MASK] = source.valueSum(from);
+    }
+}
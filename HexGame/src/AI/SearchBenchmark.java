@@ -0,0 +1,756 @@
+package AI;
+
+import Game.*;
+import java.awt.Color;
+import java.util.*;
+
+
+public class SearchBenchmark {
+
+    public static void main(String[] args) {
+        String mode = args.length > 0 ? args[0] : "mcts";
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        switch (mode.toLowerCase()) {
+            case "mcts":
+                benchmarkSearch(seconds);
+                break;
+            case "threads":
+                benchmarkThreadScaling(seconds);
+                break;
+            case "parallel":
+                compareParallelism(seconds);
+                break;
+            case "widening":
+                compareWidening(seconds);
+                break;
+            case "limits":
+                benchmarkEarlyStop(seconds);
+                break;
+            case "ponder":
+                benchmarkPondering(seconds);
+                break;
+            case "tt":
+                benchmarkTranspositions(seconds);
+                break;
+            case "cache":
+                benchmarkEvaluationCache(seconds);
+                break;
+            case "solver":
+                benchmarkSolver(seconds);
+                break;
+            case "rollouts":
+                benchmarkRollouts(seconds);
+                break;
+            case "alphabeta":
+                benchmarkAlphaBeta(seconds);
+                break;
+            case "tactics":
+                benchmarkTactics(seconds);
+                break;
+            case "batch":
+                benchmarkBatchedEvaluation(seconds);
+                break;
+            case "tree":
+                benchmarkTreeMemory(seconds);
+                break;
+            case "movegen":
+                benchmarkMoveGeneration(seconds);
+                break;
+            case "ants":
+                benchmarkPieceMoves(PieceType.ANT, 3, seconds);
+                break;
+            case "spiders":
+                benchmarkPieceMoves(PieceType.SPIDER, 2, seconds);
+                break;
+        }
+    }
+
+    private static void benchmarkSearch(int seconds) {
+        GameState state = midGamePosition(16, 7);
+        System.out.println("MCTS search on a " + state.getBoard().size() + "-cell position");
+
+        MCTSEngine heuristic = new MCTSEngine(null, null);
+        report("heuristic", heuristic, state, seconds);
+
+        HiveAI ai = new HiveAI(false);
+        MCTSEngine network = new MCTSEngine(ai.policyNetwork, ai.valueNetwork);
+        report("network", network, state, seconds);
+    }
+
+    private static void report(String label, MCTSEngine engine, GameState state, int seconds) {
+        report(label, engine, state, seconds, 50);
+    }
+
+    private static double report(String label, MCTSEngine engine, GameState state, int seconds, int perSearch) {
+        // Every search runs all its iterations, so they can be counted
+        SearchLimits limits = SearchLimits.iterations(perSearch).withEarlyStop(false);
+        // Warm up the JIT before measuring
+        engine.search(state, state.getCurrentPlayer(), limits);
+
+        long iterations = 0;
+        long start = System.nanoTime();
+        long end = start + seconds * 1_000_000_000L;
+        while (System.nanoTime() < end) {
+            // Each search starts from an empty tree rather than growing the last one
+            engine.clearTree();
+            engine.search(state, state.getCurrentPlayer(), limits);
+            iterations += perSearch;
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        System.out.printf("  %-10s %10.1f iterations/s%n", label, iterations / elapsed);
+        return iterations / elapsed;
+    }
+
+    // Large single searches: throughput, nodes and tree memory per search, and time lost to GC
+    private static void benchmarkTreeMemory(int seconds) {
+        GameState state = midGamePosition(16, 7);
+        MCTSEngine engine = new MCTSEngine(null, null);
+        System.out.println("MCTS searches of 20000 iterations on a " + state.getBoard().size() + "-cell position");
+        engine.search(state, state.getCurrentPlayer(), 20000);
+
+        long gcBefore = gcMillis();
+        long searches = 0;
+        long nodes = 0;
+        long start = System.nanoTime();
+        long end = start + seconds * 1_000_000_000L;
+        while (System.nanoTime() < end) {
+            engine.clearTree();
+            engine.search(state, state.getCurrentPlayer(), 20000);
+            nodes += engine.getTreeSize();
+            searches++;
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        System.out.printf("  %10.1f searches/s, %d nodes and %.1f KB of tree, moves included, per search, %d ms in GC%n",
+                searches / elapsed, nodes / searches, engine.getTreeBytes() / 1024.0, gcMillis() - gcBefore);
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for (java.lang.management.GarbageCollectorMXBean gc
+                : java.lang.management.ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+    // Shared-tree search from 1 thread up to one per core, doubling each step
+    private static void benchmarkThreadScaling(int seconds) {
+        GameState state = midGamePosition(16, 7);
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println("Tree-parallel MCTS on a " + state.getBoard().size() + "-cell position, "
+                + cores + " cores");
+
+        double single = 0;
+        for (int threads = 1; ; threads = Math.min(threads * 2, cores)) {
+            MCTSEngine engine = new MCTSEngine(null, null, threads);
+            double rate = report(threads + " threads", engine, state, seconds, 2000);
+            if (threads == 1) single = rate;
+            System.out.printf("  %-10s %10.2fx%n", "", rate / single);
+            if (threads == cores) break;
+        }
+    }
+
+    // Time-limited searches with and without early stopping: time spent per move and how often they agree
+    private static void benchmarkEarlyStop(int seconds) {
+        MCTSEngine engine = new MCTSEngine(null, null);
+        SearchLimits full = SearchLimits.time(500).withEarlyStop(false);
+        SearchLimits early = SearchLimits.time(500);
+
+        int positions = 0;
+        int agreed = 0;
+        long fullNanos = 0;
+        long earlyNanos = 0;
+        long end = System.nanoTime() + seconds * 1_000_000_000L;
+        for (int seed = 0; System.nanoTime() < end; seed++) {
+            GameState state = midGamePosition(16, seed);
+            Color player = state.getCurrentPlayer();
+
+            engine.clearTree();
+            long start = System.nanoTime();
+            AIMove fullMove = engine.search(state, player, full);
+            fullNanos += System.nanoTime() - start;
+
+            engine.clearTree();
+            start = System.nanoTime();
+            AIMove earlyMove = engine.search(state, player, early);
+            earlyNanos += System.nanoTime() - start;
+
+            positions++;
+            if (Objects.equals(fullMove, earlyMove)) agreed++;
+        }
+        System.out.println("500 ms searches on 16-cell positions, with and without early stopping");
+        System.out.printf("  full %.0f ms, early stop %.0f ms per move; same move in %d of %d positions%n",
+                fullNanos / 1e6 / positions, earlyNanos / 1e6 / positions, agreed, positions);
+    }
+
+    // Reply time of a 5000-iteration search after the opponent thinks for 500 ms, with and without pondering
+    private static void benchmarkPondering(int seconds) {
+        SearchLimits limits = SearchLimits.iterations(5000).withEarlyStop(false);
+        System.out.println("5000-iteration replies after 500 ms of opponent thinking");
+        for (boolean ponder : new boolean[]{false, true}) {
+            MCTSEngine engine = new MCTSEngine(null, null);
+            MCTSEngine opponent = new MCTSEngine(null, null);
+            long replyNanos = 0;
+            int replies = 0;
+            long end = System.nanoTime() + seconds * 500_000_000L;
+            for (int game = 0; System.nanoTime() < end; game++) {
+                GameState state = midGamePosition(12, game);
+                engine.clearTree();
+                for (int ply = 0; ply < 20 && !state.getResult().isOver(); ply++) {
+                    long start = System.nanoTime();
+                    AIMove move = engine.search(state, state.getCurrentPlayer(), limits);
+                    replyNanos += System.nanoTime() - start;
+                    replies++;
+                    if (move == null) break;
+                    move.execute(state);
+                    state.nextPlayer();
+                    if (state.getResult().isOver()) break;
+
+                    if (ponder) engine.startPondering(state);
+                    sleep(500);
+                    engine.stopPondering();
+                    AIMove reply = opponent.search(state, state.getCurrentPlayer(), 50);
+                    if (reply == null) break;
+                    reply.execute(state);
+                    state.nextPlayer();
+                }
+            }
+            System.out.printf("  %-13s %6.1f ms per reply over %d replies%n",
+                    ponder ? "pondering" : "no pondering", replyNanos / 1e6 / replies, replies);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Transposition table: throughput, hit rate and memory on one position, then a match against a plain tree
+    private static void benchmarkTranspositions(int seconds) {
+        GameState state = midGamePosition(16, 7);
+        MCTSEngine shared = new MCTSEngine(null, null);
+        MCTSEngine plain = new MCTSEngine(null, null);
+        plain.setTranspositionTable(0);
+
+        System.out.println("MCTS with and without a transposition table, 2000-iteration searches");
+        report("table", shared, state, seconds / 4, 2000);
+        System.out.printf("  hit rate %.1f%%, transposed %.1f%%, table %d KB%n",
+                shared.getTranspositionHitRate() * 100, shared.getTranspositionShareRate() * 100,
+                shared.getTranspositionBytes() / 1024);
+        report("plain", plain, state, seconds / 4, 2000);
+        playMatch("table", shared, "plain", plain, 400, seconds / 2);
+    }
+
+    // Network search over the same seeded games with and without the evaluation cache
+    private static void benchmarkEvaluationCache(int seconds) {
+        HiveAI ai = new HiveAI(false);
+        System.out.println("Network MCTS, 200 iterations per move, 10-ply games from distinct 8-piece openings");
+        for (boolean cached : new boolean[]{false, true}) {
+            MCTSEngine engine = new MCTSEngine(ai.policyNetwork, ai.valueNetwork);
+            if (!cached) engine.setEvaluationCache(0);
+
+            long iterations = 0;
+            long start = System.nanoTime();
+            long end = start + seconds * 500_000_000L;
+            for (int game = 0; System.nanoTime() < end; game++) {
+                GameState state = midGamePosition(8, game);
+                engine.clearTree();
+                for (int ply = 0; ply < 10 && !state.getResult().isOver() && System.nanoTime() < end; ply++) {
+                    SearchLimits limits = SearchLimits.iterations(200).withEarlyStop(false);
+                    AIMove move = engine.search(state, state.getCurrentPlayer(), limits);
+                    iterations += 200;
+                    if (move == null) break;
+                    move.execute(state);
+                    state.nextPlayer();
+                }
+            }
+            double elapsed = (System.nanoTime() - start) / 1e9;
+            System.out.printf("  %-9s %8.1f iterations/s", cached ? "cached" : "uncached", iterations / elapsed);
+            if (cached) {
+                System.out.printf(", hit rate %.1f%%, %d KB, %d evicted",
+                        engine.getEvaluationCacheHitRate() * 100, engine.getEvaluationCacheBytes() / 1024,
+                        engine.getEvaluationCacheEvictions());
+            }
+            System.out.println();
+        }
+    }
+
+    // Positions with a winning move on the board: how often and how fast the search plays one, with and without the solver
+    private static void benchmarkSolver(int seconds) {
+        List<GameState> positions = new ArrayList<>();
+        for (int seed = 0; positions.size() < 30; seed++) {
+            GameState state = winningPosition(seed);
+            if (state != null) positions.add(state);
+        }
+
+        System.out.println("2000-iteration searches on " + positions.size() + " positions with a win in one");
+        for (boolean solver : new boolean[]{false, true}) {
+            MCTSEngine engine = new MCTSEngine(null, null);
+            engine.setSolver(solver);
+            SearchLimits limits = SearchLimits.iterations(2000).withEarlyStop(false);
+
+            int searches = 0;
+            int won = 0;
+            long nanos = 0;
+            long end = System.nanoTime() + seconds * 500_000_000L;
+            while (System.nanoTime() < end) {
+                GameState state = positions.get(searches % positions.size());
+                engine.clearTree();
+                long start = System.nanoTime();
+                AIMove move = engine.search(state, state.getCurrentPlayer(), limits);
+                nanos += System.nanoTime() - start;
+                searches++;
+                if (move != null && wins(state, move)) won++;
+            }
+            System.out.printf("  %-9s won %d of %d, %.1f ms per search%n",
+                    solver ? "solver" : "no solver", won, searches, nanos / 1e6 / searches);
+        }
+    }
+
+    // A position from random play where the side to move can win at once, or null
+    private static GameState winningPosition(long seed) {
+        GameState state = midGamePosition(16, seed);
+        Random rand = new Random(seed);
+        for (int ply = 0; ply < 200 && !state.getResult().isOver(); ply++) {
+            List<AIMove> moves = MoveGenerator.generateLegalMoves(state, state.getCurrentPlayer());
+            if (moves.isEmpty()) return null;
+            for (AIMove move : moves) {
+                if (wins(state, move)) return state;
+            }
+            moves.sort(Comparator.comparing(AIMove::toString));
+            moves.get(rand.nextInt(moves.size())).execute(state);
+            state.nextPlayer();
+        }
+        return null;
+    }
+
+    private static boolean wins(GameState state, AIMove move) {
+        Color player = state.getCurrentPlayer();
+        int depth = state.getUndoDepth();
+        move.execute(state);
+        state.nextPlayer();
+        boolean won = state.getResult().isWinFor(player);
+        state.undoTo(depth);
+        return won;
+    }
+
+    // Raw playout speed, then rollout-scored MCTS against heuristic and network MCTS at equal time per move
+    private static void benchmarkRollouts(int seconds) {
+        List<GameState> positions = new ArrayList<>();
+        for (int seed = 0; seed < 20; seed++) {
+            positions.add(midGamePosition(16, seed));
+        }
+        System.out.println("Playouts of up to 40 plies from " + positions.size() + " 16-piece positions");
+        for (boolean biased : new boolean[]{false, true}) {
+            Playout playout = new Playout(1);
+            double total = 0;
+            long start = System.nanoTime();
+            long end = start + seconds * 100_000_000L;
+            while (System.nanoTime() < end) {
+                for (GameState state : positions) {
+                    total += playout.run(state, state.getCurrentPlayer(), 40, biased);
+                }
+            }
+            double elapsed = (System.nanoTime() - start) / 1e9;
+            System.out.printf("  %-7s %10.1f playouts/s, mean score %.3f%n", biased ? "biased" : "random",
+                    playout.getPlayouts() / elapsed, total / playout.getPlayouts());
+        }
+
+        SearchLimits limits = SearchLimits.time(100).withEarlyStop(false);
+        MCTSEngine rollouts = new MCTSEngine(null, null);
+        rollouts.setRollouts(40, true);
+        MCTSEngine heuristic = new MCTSEngine(null, null);
+        System.out.println("Rollout MCTS against heuristic MCTS, 100 ms per move");
+        playMatch("rollouts", rollouts, "heuristic", heuristic, limits, seconds * 2 / 5);
+
+        HiveAI ai = new HiveAI(false);
+        MCTSEngine network = new MCTSEngine(ai.policyNetwork, ai.valueNetwork);
+        System.out.println("Rollout MCTS against network MCTS, 100 ms per move");
+        playMatch("rollouts", rollouts, "network", network, limits, seconds * 2 / 5);
+        System.out.printf("  %d playouts in all%n", rollouts.getPlayoutCount());
+    }
+
+    // Win-in-one positions solved by alpha-beta and by MCTS, then the two playing at equal time per move
+    private static void benchmarkAlphaBeta(int seconds) {
+        List<GameState> positions = new ArrayList<>();
+        for (int seed = 0; positions.size() < 30; seed++) {
+            GameState state = winningPosition(seed);
+            if (state != null) positions.add(state);
+        }
+
+        AlphaBetaEngine alphaBeta = new AlphaBetaEngine();
+        MCTSEngine mcts = new MCTSEngine(null, null);
+        SearchLimits limits = SearchLimits.time(100).withEarlyStop(false);
+        System.out.println("100 ms searches on " + positions.size() + " positions with a win in one");
+        for (SearchEngine engine : new SearchEngine[]{alphaBeta, mcts}) {
+            int won = 0;
+            long nanos = 0;
+            for (GameState state : positions) {
+                engine.clearTree();
+                long start = System.nanoTime();
+                AIMove move = engine.search(state, state.getCurrentPlayer(), limits);
+                nanos += System.nanoTime() - start;
+                if (move != null && wins(state, move)) won++;
+            }
+            System.out.printf("  %-10s won %d of %d, %.2f ms per search%n", engine == alphaBeta ? "alpha-beta" : "mcts",
+                    won, positions.size(), nanos / 1e6 / positions.size());
+        }
+
+        GameState state = midGamePosition(16, 7);
+        long nodes = 0;
+        int depths = 0;
+        long start = System.nanoTime();
+        int searches = 0;
+        for (; searches < 5; searches++) {
+            alphaBeta.clearTree();
+            alphaBeta.search(state, state.getCurrentPlayer(), SearchLimits.time(1000));
+            nodes += alphaBeta.getNodes();
+            depths += alphaBeta.getCompletedDepth();
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        System.out.printf("  1 s alpha-beta from a 16-piece position: %.0f nodes/s, depth %.1f%n",
+                nodes / elapsed, (double) depths / searches);
+
+        System.out.println("Alpha-beta against heuristic MCTS, 100 ms per move");
+        playMatch("alpha-beta", alphaBeta, "mcts", mcts, limits, seconds);
+    }
+
+    /*
+     * The tactical solver on win-in-one positions, then along heuristic MCTS self-play games:
+     * wins in three it finds against those a depth-3 alpha-beta search proves, and the
+     * defences it forces checked against every opponent reply.
+     */
+    private static void benchmarkTactics(int seconds) {
+        List<GameState> positions = new ArrayList<>();
+        for (int seed = 0; positions.size() < 30; seed++) {
+            GameState state = winningPosition(seed);
+            if (state != null) positions.add(state);
+        }
+
+        TacticalSolver tactics = new TacticalSolver();
+        int won = 0;
+        int solves = 0;
+        long start = System.nanoTime();
+        long end = start + seconds * 100_000_000L;
+        while (System.nanoTime() < end) {
+            GameState state = positions.get(solves++ % positions.size());
+            AIMove move = tactics.solve(state);
+            if (move != null && wins(state, move)) won++;
+        }
+        System.out.printf("Win-in-one positions: won %d of %d, %.1f us per solve%n",
+                won, solves, (System.nanoTime() - start) / 1e3 / solves);
+
+        // Only a placement wins here, and only a placement threatens white
+        GameState covered = beetleOnQueenPosition();
+        AIMove placement = tactics.solve(covered);
+        System.out.printf("Beetle on the white queen, black to move: %s, %s%n", placement,
+                placement != null && wins(covered, placement) ? "wins" : "no win found");
+        covered.nextPlayer();
+        AIMove block = tactics.findOnlyDefence(covered);
+        System.out.printf("Same position, white to move: defence %s, %s%n", block,
+                block == null ? "none found" : survives(covered, block) ? "sound" : "unsound");
+
+        AlphaBetaEngine alphaBeta = new AlphaBetaEngine();
+        alphaBeta.setMaxDepth(3);
+        MCTSEngine mcts = new MCTSEngine(null, null);
+        SearchLimits limits = SearchLimits.iterations(300).withEarlyStop(false);
+        int checked = 0, found = 0, confirmed = 0, missed = 0, defences = 0, defended = 0;
+        long nanos = 0;
+        end = System.nanoTime() + seconds * 900_000_000L;
+        for (long seed = 0; System.nanoTime() < end; seed++) {
+            GameState state = midGamePosition(8, seed);
+            mcts.clearTree();
+            for (int ply = 0; ply < 80 && !state.getResult().isOver() && System.nanoTime() < end; ply++) {
+                Color player = state.getCurrentPlayer();
+                PackedBoard packed = state.getBoard().getPacked();
+                int queen = packed.queenIndex(!player.equals(Color.WHITE));
+                if (queen >= 0 && packed.countOccupiedNeighbors(queen) == 4 && tactics.findWinInOne(state) == null) {
+                    checked++;
+                    long t = System.nanoTime();
+                    AIMove win = tactics.findWinInThree(state);
+                    nanos += System.nanoTime() - t;
+                    alphaBeta.clearTree();
+                    alphaBeta.search(state, player, SearchLimits.time(SearchLimits.UNLIMITED_TIME));
+                    boolean proven = alphaBeta.getCompletedDepth() >= 3 && alphaBeta.getLastScore() > 0
+                            && AlphaBetaEngine.isWinScore(alphaBeta.getLastScore());
+                    if (win != null) found++;
+                    if (win != null && proven) confirmed++;
+                    if (win == null && proven) missed++;
+                }
+                AIMove defence = tactics.findOnlyDefence(state);
+                if (defence != null) {
+                    defences++;
+                    if (survives(state, defence)) defended++;
+                }
+
+                AIMove move = mcts.search(state, player, limits);
+                if (move != null) move.execute(state);
+                state.nextPlayer();
+            }
+        }
+        System.out.printf("Positions with four around the enemy queen: %d, win in three found in %d"
+                + " (%d proven by alpha-beta), %d alpha-beta wins missed, %.2f ms per search%n",
+                checked, found, confirmed, missed, nanos / 1e6 / Math.max(1, checked));
+        System.out.printf("Only defences played: %d, of which %d leave no winning reply%n", defences, defended);
+    }
+
+    /*
+     * A black beetle on the white queen, whose one empty neighbour touches only black pieces.
+     * Black's queen is still in reserve, so black cannot move, but placing anything there wins.
+     * White's only defence is the ant stepping next to the gap, which stops black placing
+     * there. Black to move.
+     */
+    private static GameState beetleOnQueenPosition() {
+        GameState state = new GameState();
+        place(state, Color.WHITE, PieceType.QUEEN, 0, 0);
+        place(state, Color.WHITE, PieceType.ANT, -2, 0);
+        place(state, Color.BLACK, PieceType.ANT, 1, -1);
+        place(state, Color.BLACK, PieceType.ANT, -1, 0);
+        place(state, Color.BLACK, PieceType.ANT, 2, -1);
+        place(state, Color.BLACK, PieceType.SPIDER, 0, 1);
+        place(state, Color.BLACK, PieceType.SPIDER, 1, 1);
+        place(state, Color.BLACK, PieceType.GRASSHOPPER, 0, -1);
+        place(state, Color.BLACK, PieceType.GRASSHOPPER, -1, 1);
+        place(state, Color.BLACK, PieceType.BEETLE, 1, 0);
+        state.movePiece(new HexCoord(1, 0), new HexCoord(0, 0));
+        state.nextPlayer();
+        return state;
+    }
+
+    private static void place(GameState state, Color color, PieceType type, int q, int r) {
+        for (Piece piece : state.getReserve(color)) {
+            if (piece.getType() == type) {
+                state.placePiece(piece, new HexCoord(q, r));
+                return;
+            }
+        }
+    }
+
+    private static boolean survives(GameState state, AIMove move) {
+        Color player = state.getCurrentPlayer();
+        int depth = state.getUndoDepth();
+        move.execute(state);
+        state.nextPlayer();
+        boolean safe = !state.getResult().isOver() || state.getResult().isWinFor(player);
+        if (safe && !state.getResult().isOver()) {
+            for (AIMove reply : MoveGenerator.generateLegalMoves(state, state.getCurrentPlayer())) {
+                if (wins(state, reply)) {
+                    safe = false;
+                    break;
+                }
+            }
+        }
+        state.undoTo(depth);
+        return safe;
+    }
+
+    // Shared-tree against root-parallel search, same threads and wall-clock time per move
+    private static void compareParallelism(int seconds) {
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        MCTSEngine tree = new MCTSEngine(null, null, threads, MCTSEngine.Parallelism.TREE);
+        MCTSEngine root = new MCTSEngine(null, null, threads, MCTSEngine.Parallelism.ROOT);
+        System.out.println("Tree- against root-parallel MCTS, " + threads + " threads each, 200 ms per move");
+        playMatch("tree", tree, "root", root, SearchLimits.time(200).withEarlyStop(false), seconds);
+    }
+
+    // Progressive widening against the old first-50-moves cap, same iterations per move
+    private static void compareWidening(int seconds) {
+        MCTSEngine widening = new MCTSEngine(null, null);
+        MCTSEngine capped = new MCTSEngine(null, null);
+        capped.setProgressiveWidening(false);
+        // Equal time per move, since widening spends longer on each iteration
+        System.out.println("Progressive widening against a fixed 50-child cap, 50 ms per move");
+        playMatch("widening", widening, "capped", capped, SearchLimits.time(50).withEarlyStop(false), seconds);
+    }
+
+    /*
+     * Plays games from seeded 8-piece openings, each opening twice with colours swapped.
+     * Games still running after 80 plies go to the side with more pieces around the enemy
+     * queen. Reports games decided on the board apart from adjudicated ones, and the search
+     * time each side used.
+     */
+    private static void playMatch(String nameA, SearchEngine a, String nameB, SearchEngine b,
+                                  int iterations, int seconds) {
+        playMatch(nameA, a, nameB, b, SearchLimits.iterations(iterations), seconds);
+    }
+
+    private static void playMatch(String nameA, SearchEngine a, String nameB, SearchEngine b,
+                                  SearchLimits limits, int seconds) {
+        // Wins for A, wins for B and draws, for games finished on the board and for adjudicated ones
+        int[] decided = new int[3];
+        int[] adjudicated = new int[3];
+        long nanosA = 0;
+        long nanosB = 0;
+        long end = System.nanoTime() + seconds * 1_000_000_000L;
+        for (int game = 0; System.nanoTime() < end; game++) {
+            GameState state = midGamePosition(8, game / 2);
+            Color colorA = game % 2 == 0 ? Color.WHITE : Color.BLACK;
+            a.clearTree();
+            b.clearTree();
+
+            GameResult result = GameResult.ONGOING;
+            for (int ply = 0; ply < 80 && !result.isOver(); ply++) {
+                Color player = state.getCurrentPlayer();
+                boolean turnA = player.equals(colorA);
+                long start = System.nanoTime();
+                AIMove move = (turnA ? a : b).search(state, player, limits);
+                if (turnA) nanosA += System.nanoTime() - start; else nanosB += System.nanoTime() - start;
+                if (move == null) break;
+                move.execute(state);
+                state.nextPlayer();
+                result = state.getResult();
+            }
+
+            int[] tally = decided;
+            if (!result.isOver()) {
+                result = adjudicate(state);
+                tally = adjudicated;
+            }
+            tally[result == GameResult.DRAW ? 2 : result.isWinFor(colorA) ? 0 : 1]++;
+        }
+        System.out.printf("  decided: %s %d, %s %d, drawn %d%n",
+                nameA, decided[0], nameB, decided[1], decided[2]);
+        System.out.printf("  adjudicated at 80 plies: %s %d, %s %d, drawn %d%n",
+                nameA, adjudicated[0], nameB, adjudicated[1], adjudicated[2]);
+        System.out.printf("  search time %s %.1f s, %s %.1f s%n", nameA, nanosA / 1e9, nameB, nanosB / 1e9);
+    }
+
+    private static GameResult adjudicate(GameState state) {
+        PackedBoard packed = state.getBoard().getPacked();
+        int onWhite = packed.queenIndex(true) >= 0 ? packed.countOccupiedNeighbors(packed.queenIndex(true)) : 0;
+        int onBlack = packed.queenIndex(false) >= 0 ? packed.countOccupiedNeighbors(packed.queenIndex(false)) : 0;
+        if (onWhite == onBlack) return GameResult.DRAW;
+        return onWhite > onBlack ? GameResult.BLACK_WIN : GameResult.WHITE_WIN;
+    }
+
+    // Value network evaluations per second, one input at a time against forwardBatch
+    private static void benchmarkBatchedEvaluation(int seconds) {
+        NeuralNetwork network = new HiveAI(false).valueNetwork;
+        double[][] inputs = new double[32][];
+        for (int i = 0; i < inputs.length; i++) {
+            GameState state = midGamePosition(16, i);
+            inputs[i] = StateEncoder.encode(state, state.getCurrentPlayer());
+        }
+        System.out.println("Value network evaluations on " + inputs.length + " encoded positions");
+
+        long evaluations = 0;
+        long start = System.nanoTime();
+        long end = start + seconds * 1_000_000_000L;
+        while (System.nanoTime() < end) {
+            for (double[] input : inputs) {
+                network.forward(input);
+            }
+            evaluations += inputs.length;
+        }
+        double single = evaluations / ((System.nanoTime() - start) / 1e9);
+        System.out.printf("  %-10s %10.1f evaluations/s%n", "forward", single);
+
+        for (int size : new int[]{4, 8, 16, 32}) {
+            double[][] batch = Arrays.copyOf(inputs, size);
+            evaluations = 0;
+            start = System.nanoTime();
+            end = start + seconds * 1_000_000_000L;
+            while (System.nanoTime() < end) {
+                network.forwardBatch(batch);
+                evaluations += size;
+            }
+            double rate = evaluations / ((System.nanoTime() - start) / 1e9);
+            System.out.printf("  %-10s %10.1f evaluations/s, %.2fx%n", "batch " + size, rate, rate / single);
+        }
+    }
+
+    private static void benchmarkMoveGeneration(int seconds) {
+        List<GameState> positions = new ArrayList<>();
+        for (int seed = 0; seed < 20; seed++) {
+            positions.add(midGamePosition(16, seed));
+        }
+        System.out.println("Legal move generation over " + positions.size() + " 16-piece positions");
+
+        long generated = 0;
+        long calls = 0;
+        long start = System.nanoTime();
+        long end = start + seconds * 1_000_000_000L;
+        while (System.nanoTime() < end) {
+            for (GameState state : positions) {
+                generated += MoveGenerator.generateLegalMoves(state, state.getCurrentPlayer()).size();
+                calls++;
+            }
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        System.out.printf("  %10.1f generations/s, %.0f moves each%n", calls / elapsed, (double) generated / calls);
+    }
+
+    private static void benchmarkPieceMoves(PieceType type, int minPieces, int seconds) {
+        List<GameState> positions = new ArrayList<>();
+        List<List<AIMove>> replies = new ArrayList<>();
+        for (int seed = 0; positions.size() < 20; seed++) {
+            GameState state = midGamePosition(18, seed);
+            if (pieceCells(state, type).length >= minPieces) {
+                positions.add(state);
+                replies.add(MoveGenerator.generateLegalMoves(state, state.getCurrentPlayer()));
+            }
+        }
+        System.out.println(type + " move generation over " + positions.size() + " 18-piece positions with "
+                + minPieces + "+ of them");
+
+        // Each round plays a different move first so no position repeats back to back
+        long destinations = 0;
+        long pieces = 0;
+        int[] out = new int[PackedBoard.CELLS];
+        long start = System.nanoTime();
+        long end = start + seconds * 1_000_000_000L;
+        for (int round = 0; System.nanoTime() < end; round++) {
+            for (int p = 0; p < positions.size(); p++) {
+                GameState state = positions.get(p);
+                List<AIMove> moves = replies.get(p);
+                int depth = state.getUndoDepth();
+                moves.get(round % moves.size()).execute(state);
+
+                HiveBoard board = state.getBoard();
+                MoveCalculator calc = new MoveCalculator(board, new MovementValidator(board));
+                for (int cell : pieceCells(state, type)) {
+                    destinations += calc.getValidMoves(cell, type, out);
+                    pieces++;
+                }
+                state.undoTo(depth);
+            }
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        System.out.printf("  %10.1f pieces/s, %.1f destinations each%n", pieces / elapsed, (double) destinations / pieces);
+    }
+
+    private static int[] pieceCells(GameState state, PieceType type) {
+        PackedBoard packed = state.getBoard().getPacked();
+        List<Integer> cells = new ArrayList<>();
+        for (HexCoord coord : state.getBoard().getAllCoordinates()) {
+            int cell = PackedBoard.index(coord);
+            if (PackedBoard.typeOf(packed.topCode(cell)) == type.ordinal()) cells.add(cell);
+        }
+        return cells.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // Plays seeded random legal moves until the hive holds the requested number of pieces
+    static GameState midGamePosition(int pieces, long seed) {
+        Random rand = new Random(seed);
+        while (true) {
+            GameState state = new GameState();
+            for (int turn = 0; turn < 200 && state.getBoard().size() < pieces; turn++) {
+                Color player = state.getCurrentPlayer();
+                List<AIMove> moves = MoveGenerator.generateLegalMoves(state, player);
+                if (moves.isEmpty()) break;
+                // Sort so the positions do not depend on generation order
+                moves.sort(Comparator.comparing(AIMove::toString));
+                moves.get(rand.nextInt(moves.size())).execute(state);
+                state.nextPlayer();
+            }
+            if (state.getBoard().size() >= pieces && state.isQueenPlaced(Color.WHITE)
+                    && state.isQueenPlaced(Color.BLACK)) {
+                return state;
+            }
+        }
+    }
+}
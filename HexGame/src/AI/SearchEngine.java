@@ -0,0 +1,35 @@
+package AI;
+
+import Game.GameState;
+import java.awt.Color;
+
+/**
+ * A move search HiveAI can play with: MCTS, or alpha-beta for sharp tactical positions.
+ *
+ * Engines keep whatever they learn between searches (trees, tables) until clearTree, and
+ * may search on the opponent's time if they support pondering.
+ */
+public interface SearchEngine {
+
+    // Best move for color, the side to move in state, within limits, or null if there is none
+    AIMove search(GameState state, Color color, SearchLimits limits);
+
+    default AIMove search(GameState state, Color color, int iterations) {
+        return search(state, color, SearchLimits.iterations(iterations));
+    }
+
+    // Ends the running search, if any; it still returns the best move found so far
+    void stopSearch();
+
+    // Work the running search has done, in iterations or nodes, or 0 between searches
+    int getSearchProgress();
+
+    // Forgets everything kept from earlier searches; call when a new game starts
+    void clearTree();
+
+    default void startPondering(GameState state) {
+    }
+
+    default void stopPondering() {
+    }
+}
@@ -0,0 +1,139 @@
+package AI;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Budget for one search: wall-clock time, tree nodes and iterations, each optional. Alpha-beta
+ * counts the nodes it visits, and turns an iteration limit into a node limit of similar cost.
+ *
+ * The search stops at whichever limit runs out first, and with early stopping also as soon
+ * as the most visited root move can no longer be overtaken in what is left of the budget.
+ * A time bank is a per-game allowance: each move may spend a share of what remains, on top
+ * of the fixed per-move time, and the bank is charged only for time beyond the fixed time.
+ * Copies made by the with-methods and scaled share one bank.
+ */
+public final class SearchLimits {
+    public static final long UNLIMITED_TIME = Long.MAX_VALUE;
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+
+    // Safety net for searches limited by iterations alone
+    public static final long DEFAULT_TIME_MILLIS = 2000;
+    // A move may spend 1 / BANK_MOVES of the time left in the bank, but never less than MIN_BANK_MILLIS
+    private static final int BANK_MOVES = 20;
+    private static final long MIN_BANK_MILLIS = 10;
+
+    private final long timeMillis;
+    private final int maxNodes;
+    private final int maxIterations;
+    private final boolean earlyStop;
+    private final long bankMillis;
+    private final AtomicLong bankLeft;
+
+    private SearchLimits(long timeMillis, int maxNodes, int maxIterations, boolean earlyStop,
+                         long bankMillis, AtomicLong bankLeft) {
+        this.timeMillis = timeMillis;
+        this.maxNodes = maxNodes;
+        this.maxIterations = maxIterations;
+        this.earlyStop = earlyStop;
+        this.bankMillis = bankMillis;
+        this.bankLeft = bankLeft;
+    }
+
+    // A fixed number of iterations, cut off after DEFAULT_TIME_MILLIS
+    public static SearchLimits iterations(int iterations) {
+        return new SearchLimits(DEFAULT_TIME_MILLIS, UNLIMITED, Math.max(1, iterations), true, 0, null);
+    }
+
+    // As many iterations as fit in the given time
+    public static SearchLimits time(long millis) {
+        return new SearchLimits(Math.max(1, millis), UNLIMITED, UNLIMITED, true, 0, null);
+    }
+
+    public SearchLimits withTime(long millis) {
+        return new SearchLimits(Math.max(1, millis), maxNodes, maxIterations, earlyStop, bankMillis, bankLeft);
+    }
+
+    public SearchLimits withIterations(int iterations) {
+        return new SearchLimits(timeMillis, maxNodes, Math.max(1, iterations), earlyStop, bankMillis, bankLeft);
+    }
+
+    // Caps the nodes held in the search tree, including any kept from the previous search
+    public SearchLimits withNodes(int nodes) {
+        return new SearchLimits(timeMillis, Math.max(1, nodes), maxIterations, earlyStop, bankMillis, bankLeft);
+    }
+
+    public SearchLimits withEarlyStop(boolean enabled) {
+        return new SearchLimits(timeMillis, maxNodes, maxIterations, enabled, bankMillis, bankLeft);
+    }
+
+    // A fresh bank of millisPerGame for the game; 0 removes the bank
+    public SearchLimits withTimeBank(long millisPerGame) {
+        if (millisPerGame <= 0) {
+            return new SearchLimits(timeMillis, maxNodes, maxIterations, earlyStop, 0, null);
+        }
+        return new SearchLimits(timeMillis, maxNodes, maxIterations, earlyStop,
+                millisPerGame, new AtomicLong(millisPerGame));
+    }
+
+    // The same limits with time, nodes and iterations multiplied by factor; the bank is shared
+    public SearchLimits scaled(double factor) {
+        return new SearchLimits(scale(timeMillis, factor), (int) scale(maxNodes, factor),
+                (int) scale(maxIterations, factor), earlyStop, bankMillis, bankLeft);
+    }
+
+    private static long scale(long limit, double factor) {
+        if (limit == UNLIMITED_TIME || limit == UNLIMITED) return limit;
+        return Math.max(1, Math.round(limit * factor));
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    public int getMaxNodes() {
+        return maxNodes;
+    }
+
+    public int getMaxIterations() {
+        return maxIterations;
+    }
+
+    public boolean isEarlyStop() {
+        return earlyStop;
+    }
+
+    public boolean hasTimeBank() {
+        return bankLeft != null;
+    }
+
+    public long getTimeBankLeft() {
+        return bankLeft != null ? bankLeft.get() : 0;
+    }
+
+    // Refills the bank; call when a new game starts
+    public void resetTimeBank() {
+        if (bankLeft != null) bankLeft.set(bankMillis);
+    }
+
+    // Time the next move may take: the fixed time plus a share of the bank, never more than the bank holds
+    public long moveTimeMillis() {
+        long left = bankLeft != null ? bankLeft.get() : 0;
+        if (left <= 0 || timeMillis == UNLIMITED_TIME) return timeMillis;
+        long share = Math.min(left, Math.max(MIN_BANK_MILLIS, left / BANK_MOVES));
+        return timeMillis > UNLIMITED_TIME - share ? UNLIMITED_TIME : timeMillis + share;
+    }
+
+    // Takes whatever a move used beyond the fixed time out of the bank
+    public void charge(long millis) {
+        if (bankLeft != null && millis > timeMillis) bankLeft.addAndGet(timeMillis - millis);
+    }
+
+    @Override
+    public String toString() {
+        return "SearchLimits{time=" + (timeMillis == UNLIMITED_TIME ? "-" : timeMillis + "ms")
+                + ", nodes=" + (maxNodes == UNLIMITED ? "-" : maxNodes)
+                + ", iterations=" + (maxIterations == UNLIMITED ? "-" : maxIterations)
+                + ", earlyStop=" + earlyStop
+                + (bankLeft != null ? ", bank=" + bankLeft.get() + "/" + bankMillis + "ms" : "") + "}";
+    }
+}
@@ -0,0 +1,48 @@
+package AI;
+
+import Game.*;
+import java.awt.Color;
+
+/**
+ * Stateless feature encoding of a game state for the policy and value networks
+ */
+public final class StateEncoder {
+    // 11x11 grid * 2 colors * 5 piece types = 1210 features + game phase features
+    public static final int FEATURE_COUNT = 1220;
+
+    private StateEncoder() {
+    }
+
+    public static double[] encode(GameState state, Color aiColor) {
+        double[] features = new double[FEATURE_COUNT];
+        int idx = 0;
+
+        // Encode board state
+        HiveBoard board = state.getBoard();
+        PackedBoard packed = board.getPacked();
+        boolean aiWhite = aiColor.equals(Color.WHITE);
+        for (int q = -5; q <= 5; q++) {
+            for (int r = -5; r <= 5; r++) {
+                int cell = PackedBoard.index(q, r);
+
+                if (packed.isOccupied(cell)) {
+                    int code = packed.topCode(cell);
+                    int colorOffset = PackedBoard.isWhite(code) == aiWhite ? 0 : 5;
+                    int typeIdx = PackedBoard.typeOf(code);
+                    features[idx + colorOffset + typeIdx] = 1.0;
+                }
+                idx += 10; // 5 types * 2 colors
+            }
+        }
+
+        // Game phase features
+        Color opponent = aiColor.equals(Color.WHITE) ? Color.BLACK : Color.WHITE;
+        features[1210] = state.getTurnCount() / 30.0; // Normalize turn count
+        features[1211] = state.isQueenPlaced(aiColor) ? 1.0 : 0.0;
+        features[1212] = state.isQueenPlaced(opponent) ? 1.0 : 0.0;
+        features[1213] = state.getReserve(aiColor).size() / 11.0; // Normalize reserve
+        features[1214] = board.size() / 22.0; // Normalize board size
+
+        return features;
+    }
+}
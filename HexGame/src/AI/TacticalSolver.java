@@ -0,0 +1,215 @@
+package AI;
+
+import Game.*;
+import java.awt.Color;
+import java.util.*;
+
+/**
+ * Short forced wins around the queens, found without a search tree.
+ *
+ * A game is won by filling the last empty neighbour of the enemy queen, so only moves onto
+ * those cells are tried: the last gap for a win in one ply, one of the last two for a win in
+ * three. A win in three must leave the opponent no immediate win, and every reply, the ones
+ * that block the gap or move the queen first, must still leave a winning fill. The same
+ * check on the opponent finds their threats of a win in two, and the only move that stops
+ * one. Placements count as fills: a beetle on top of a queen leaves its empty neighbours
+ * touching only the beetle's colour, so that side may place there. Not thread-safe; each AI
+ * keeps its own.
+ */
+public class TacticalSolver {
+    private final int[] cells = new int[PackedBoard.CELLS];
+    private final int[] targets = new int[PackedBoard.CELLS];
+    private long positions;
+
+    // Positions checked for a winning fill so far, for benchmarks
+    public long getPositions() {
+        return positions;
+    }
+
+    // A win in one, else a win in three, else the only move that stops the opponent winning next turn
+    public AIMove solve(GameState state) {
+        AIMove move = findWinInOne(state);
+        if (move == null) move = findWinInThree(state);
+        if (move == null) move = findOnlyDefence(state);
+        return move;
+    }
+
+    public AIMove findWinInOne(GameState state) {
+        Color side = state.getCurrentPlayer();
+        PackedBoard packed = state.getBoard().getPacked();
+        int queen = packed.queenIndex(!side.equals(Color.WHITE));
+        if (queen < 0 || packed.countOccupiedNeighbors(queen) != 5) return null;
+
+        for (AIMove move : fills(state, queen)) {
+            if (wins(state, move, side)) return move;
+        }
+        return null;
+    }
+
+    // A move after which the opponent cannot win at once and every reply leaves a winning fill
+    public AIMove findWinInThree(GameState state) {
+        Color side = state.getCurrentPlayer();
+        PackedBoard packed = state.getBoard().getPacked();
+        int queen = packed.queenIndex(!side.equals(Color.WHITE));
+        if (queen < 0 || packed.countOccupiedNeighbors(queen) != 4) return null;
+
+        int depth = state.getUndoDepth();
+        for (AIMove move : fills(state, queen)) {
+            play(state, move);
+            boolean forced = !state.getResult().isOver() && !canWinNow(state) && everyReplyLoses(state, side);
+            state.undoTo(depth);
+            if (forced) return move;
+        }
+        return null;
+    }
+
+    // When the opponent threatens a win next turn and exactly one move stops every such win, that move
+    public AIMove findOnlyDefence(GameState state) {
+        Color side = state.getCurrentPlayer();
+        PackedBoard packed = state.getBoard().getPacked();
+        int ownQueen = packed.queenIndex(side.equals(Color.WHITE));
+        if (ownQueen < 0 || packed.countOccupiedNeighbors(ownQueen) < 5) return null;
+
+        int depth = state.getUndoDepth();
+        state.nextPlayer();
+        boolean threatened = canWinNow(state);
+        state.undoTo(depth);
+        if (!threatened) return null;
+
+        AIMove defence = null;
+        for (AIMove move : MoveGenerator.generateLegalMoves(state, side)) {
+            play(state, move);
+            GameResult result = state.getResult();
+            boolean safe = !result.isOver() ? !canWinNow(state) : result.isWinFor(side);
+            state.undoTo(depth);
+            if (!safe || move.equals(defence)) continue;
+            // Placements of one type on one cell are the same move whatever the instance
+            if (defence != null && !samePlacement(move, defence)) return null;
+            if (defence == null) defence = move;
+        }
+        return defence;
+    }
+
+    // Legal moves and placements of the side to move that fill an empty neighbour of queen, without vacating another
+    private List<AIMove> fills(GameState state, int queen) {
+        PackedBoard packed = state.getBoard().getPacked();
+        List<AIMove> fills = new ArrayList<>();
+
+        for (AIMove move : MoveGenerator.generateLegalMoves(state, state.getCurrentPlayer())) {
+            int to = PackedBoard.index(move.getTo());
+            if (packed.isOccupied(to) || !Heuristics.isAdjacent(to, queen)) continue;
+            if (move.getType() == MoveType.MOVE) {
+                int from = PackedBoard.index(move.getFrom());
+                if (Heuristics.isAdjacent(from, queen) && packed.height(from) == 1) continue;
+            } else if (fills.stream().anyMatch(fill -> samePlacement(fill, move))) {
+                continue;
+            }
+            fills.add(move);
+        }
+        return fills;
+    }
+
+    // Whether every reply of the opponent, now to move, still lets side win on the move after
+    private boolean everyReplyLoses(GameState state, Color side) {
+        Color opponent = state.getCurrentPlayer();
+        List<AIMove> replies = MoveGenerator.generateLegalMoves(state, opponent);
+        int depth = state.getUndoDepth();
+        if (replies.isEmpty()) {
+            state.nextPlayer();
+            boolean lost = canWinNow(state);
+            state.undoTo(depth);
+            return lost;
+        }
+
+        // Replies that block the gaps or move the queen are the likely refutations, so try them first
+        int queen = state.getBoard().getPacked().queenIndex(opponent.equals(Color.WHITE));
+        replies.sort(Comparator.comparingInt(reply -> touchesQueen(reply, queen) ? 0 : 1));
+        for (AIMove reply : replies) {
+            play(state, reply);
+            GameResult result = state.getResult();
+            boolean lost = result.isOver() ? result.isWinFor(side) : canWinNow(state);
+            state.undoTo(depth);
+            if (!lost) return false;
+        }
+        return true;
+    }
+
+    private static boolean touchesQueen(AIMove move, int queen) {
+        int to = PackedBoard.index(move.getTo());
+        if (to == queen || Heuristics.isAdjacent(to, queen)) return true;
+        if (move.getType() != MoveType.MOVE) return false;
+        int from = PackedBoard.index(move.getFrom());
+        return from == queen || Heuristics.isAdjacent(from, queen);
+    }
+
+    // Whether the side to move can fill the last gap around the enemy queen and win; no lists built
+    private boolean canWinNow(GameState state) {
+        positions++;
+        Color side = state.getCurrentPlayer();
+        boolean white = side.equals(Color.WHITE);
+        HiveBoard board = state.getBoard();
+        PackedBoard packed = board.getPacked();
+        int queen = packed.queenIndex(!white);
+        if (queen < 0 || packed.countOccupiedNeighbors(queen) != 5) return false;
+
+        int gap = -1;
+        for (int d = 0; d < 6 && gap < 0; d++) {
+            if (!packed.isOccupied(PackedBoard.neighbor(queen, d))) gap = PackedBoard.neighbor(queen, d);
+        }
+
+        HexCoord anchor = board.getAllCoordinates().iterator().next();
+        if (new PlacementValidator(board).canPlaceAt(gap, white)) {
+            // Any placeable piece will do, as the type does not matter once it lands
+            for (Piece piece : state.getReserve(side)) {
+                if (state.mustPlaceQueen() && piece.getType() != PieceType.QUEEN) continue;
+                int depth = state.getUndoDepth();
+                state.placePiece(piece, PackedBoard.toCoord(gap, anchor));
+                boolean won = state.getResult().isWinFor(side);
+                state.undoTo(depth);
+                if (won) return true;
+                break;
+            }
+        }
+        if (!state.isQueenPlaced(side)) return false;
+
+        MoveCalculator calc = new MoveCalculator(board, new MovementValidator(board));
+        int occupied = packed.occupiedCells(cells);
+        for (int i = 0; i < occupied; i++) {
+            int from = cells[i];
+            int code = packed.topCode(from);
+            if (PackedBoard.isWhite(code) != white) continue;
+            // Leaving one of the queen's neighbours for the gap does not close it in
+            if (Heuristics.isAdjacent(from, queen) && packed.height(from) == 1) continue;
+
+            int count = calc.getValidMoves(from, PieceType.values()[PackedBoard.typeOf(code)], targets);
+            for (int j = 0; j < count; j++) {
+                if (targets[j] != gap) continue;
+                int depth = state.getUndoDepth();
+                state.movePiece(PackedBoard.toCoord(from, anchor), PackedBoard.toCoord(gap, anchor));
+                // Closing in our own queen too is a draw, not a win
+                boolean won = state.getResult().isWinFor(side);
+                state.undoTo(depth);
+                if (won) return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean wins(GameState state, AIMove move, Color side) {
+        int depth = state.getUndoDepth();
+        play(state, move);
+        boolean won = state.getResult().isWinFor(side);
+        state.undoTo(depth);
+        return won;
+    }
+
+    private static boolean samePlacement(AIMove a, AIMove b) {
+        return a.getType() == MoveType.PLACE && b.getType() == MoveType.PLACE
+                && a.getPiece().getType() == b.getPiece().getType() && a.getTo().equals(b.getTo());
+    }
+
+    private static void play(GameState state, AIMove move) {
+        move.execute(state);
+        state.nextPlayer();
+    }
+}
@@ -21,9 +21,7 @@ public class AIAgent {
     }
 
     public AIAgent clone() {
-        HiveAI clonedAI = new HiveAI(false);
-        clonedAI.policyNetwork = this.ai.policyNetwork.clone();
-        clonedAI.valueNetwork = this.ai.valueNetwork.clone();
+        HiveAI clonedAI = new HiveAI(this.ai.policyNetwork.clone(), this.ai.valueNetwork.clone());
         return new AIAgent(clonedAI, this.id);
     }
 
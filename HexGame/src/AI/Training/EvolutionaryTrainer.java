@@ -41,9 +41,7 @@ public class EvolutionaryTrainer {
 
             HiveAI ai;
             if (usePretrained && baseAI != null) {
-                ai = new HiveAI(false);
-                ai.policyNetwork = baseAI.policyNetwork.clone();
-                ai.valueNetwork = baseAI.valueNetwork.clone();
+                ai = new HiveAI(baseAI.policyNetwork.clone(), baseAI.valueNetwork.clone());
 
                 if (i > 0) {
                     ai.policyNetwork.mutate(0.05, 0.02);
@@ -172,6 +170,8 @@ public class EvolutionaryTrainer {
     private GameResult playGame(AIAgent white, AIAgent black) {
         GameState state = new GameState();
         int maxMoves = 30;
+        white.ai.clearSearchTree();
+        black.ai.clearSearchTree();
 
         for (int turn = 0; turn < maxMoves; turn++) {
             Color currentPlayer = state.getCurrentPlayer();
@@ -196,13 +196,8 @@ public class EvolutionaryTrainer {
                 return GameResult.DRAW;
             }
 
-            String winMessage = checkWinCondition(state);
-
-            if (winMessage != null) {
-                if (winMessage.contains("Draw")) return GameResult.DRAW;
-                if (winMessage.contains("White wins")) return GameResult.WHITE_WIN;
-                if (winMessage.contains("Black wins")) return GameResult.BLACK_WIN;
-            }
+            GameResult result = state.getResult();
+            if (result.isOver()) return result;
 
             state.nextPlayer();
         }
@@ -251,9 +246,7 @@ public class EvolutionaryTrainer {
         NeuralNetwork childPolicyNet = parent1.ai.policyNetwork.crossover(parent2.ai.policyNetwork);
         NeuralNetwork childValueNet = parent1.ai.valueNetwork.crossover(parent2.ai.valueNetwork);
 
-        HiveAI childAI = new HiveAI(false);
-        childAI.policyNetwork = childPolicyNet;
-        childAI.valueNetwork = childValueNet;
+        HiveAI childAI = new HiveAI(childPolicyNet, childValueNet);
 
         return new AIAgent(childAI, -1);
     }
@@ -321,40 +314,4 @@ public class EvolutionaryTrainer {
             System.err.println("Error exporting stats: " + e.getMessage());
         }
     }
-
-    private String checkWinCondition(GameState state) {
-        HiveBoard board = state.getBoard();
-        boolean whiteQueenSurrounded = false;
-        boolean blackQueenSurrounded = false;
-
-        for (Map.Entry<HexCoord, List<Piece>> entry : board.getBoard().entrySet()) {
-            Piece piece = entry.getValue().get(0);
-            if (piece.getType() == PieceType.QUEEN) {
-                int neighbors = 0;
-                for (HexCoord neighbor : entry.getKey().getNeighbors()) {
-                    if (board.containsCoord(neighbor)) {
-                        neighbors++;
-                    }
-                }
-
-                if (neighbors == 6) {
-                    if (piece.getColor().equals(Color.WHITE)) {
-                        whiteQueenSurrounded = true;
-                    } else {
-                        blackQueenSurrounded = true;
-                    }
-                }
-            }
-        }
-
-        if (whiteQueenSurrounded && blackQueenSurrounded) {
-            return "Draw! Both Queens surrounded!";
-        } else if (whiteQueenSurrounded) {
-            return "Black wins! White Queen surrounded!";
-        } else if (blackQueenSurrounded) {
-            return "White wins! Black Queen surrounded!";
-        }
-
-        return null;
-    }
 }
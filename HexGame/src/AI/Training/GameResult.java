@@ -1,8 +0,0 @@
-package AI.Training;
-
-public enum GameResult {
-    WHITE_WIN,
-    BLACK_WIN,
-    DRAW,
-    ONGOING
-}
\ No newline at end of file
@@ -68,6 +68,7 @@ public class SelfPlayTrainer {
         GameState state = new GameState();
         List<GameExperience> history = new ArrayList<>();
         int maxMoves = 100;
+        agent.clearSearchTree();
 
         for (int turn = 0; turn < maxMoves; turn++) {
             Color currentPlayer = state.getCurrentPlayer();
@@ -77,9 +78,9 @@ public class SelfPlayTrainer {
             if (move == null) break;
 
 
-            double[] stateBefore = agent.encodeGameState(state, currentPlayer);
+            double[] stateBefore = StateEncoder.encode(state, currentPlayer);
             move.execute(state);
-            double[] stateAfter = agent.encodeGameState(state, currentPlayer);
+            double[] stateAfter = StateEncoder.encode(state, currentPlayer);
             double posReward = computePositionalReward(state, currentPlayer);
 
             GameExperience exp = new GameExperience(
@@ -91,18 +92,9 @@ public class SelfPlayTrainer {
                 break;
             }
 
-            String winMessage = checkWinCondition(state);
-
-            if (winMessage != null) {
-                GameResult result;
-                if (winMessage.contains("Draw")) {
-                    result = GameResult.DRAW;
-                } else if (winMessage.contains("White wins")) {
-                    result = GameResult.WHITE_WIN;
-                } else {
-                    result = GameResult.BLACK_WIN;
-                }
+            GameResult result = state.getResult();
 
+            if (result.isOver()) {
                 history.get(history.size() - 1).result = result;
                 break;
             }
@@ -251,43 +243,6 @@ public class SelfPlayTrainer {
         if (ownQueenPlaced) score -= (ownQueenNeighbors / 6.0) * 0.35; // penalise own queen being surrounded
         return Math.max(0.0, Math.min(1.0, score));
     }
-
-    //Check win condition without needing a save file
-    private String checkWinCondition(GameState state) {
-        HiveBoard board = state.getBoard();
-        boolean whiteQueenSurrounded = false;
-        boolean blackQueenSurrounded = false;
-
-        for (Map.Entry<HexCoord, List<Piece>> entry : board.getBoard().entrySet()) {
-            Piece piece = entry.getValue().get(0);
-            if (piece.getType() == PieceType.QUEEN) {
-                int neighbors = 0;
-                for (HexCoord neighbor : entry.getKey().getNeighbors()) {
-                    if (board.containsCoord(neighbor)) {
-                        neighbors++;
-                    }
-                }
-
-                if (neighbors == 6) {
-                    if (piece.getColor().equals(Color.WHITE)) {
-                        whiteQueenSurrounded = true;
-                    } else {
-                        blackQueenSurrounded = true;
-                    }
-                }
-            }
-        }
-
-        if (whiteQueenSurrounded && blackQueenSurrounded) {
-            return "Draw! Both Queens surrounded!";
-        } else if (whiteQueenSurrounded) {
-            return "Black wins! White Queen surrounded!";
-        } else if (blackQueenSurrounded) {
-            return "White wins! Black Queen surrounded!";
-        }
-
-        return null;
-    }
 }
 
 
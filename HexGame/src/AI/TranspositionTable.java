@@ -0,0 +1,158 @@
+package AI;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Visit and value totals per position, shared by every tree node that reaches the position.
+ *
+ * A fixed number of buckets of WAYS entries each, indexed by the low bits of the 64-bit
+ * position hash. A position that is not yet stored takes an empty entry in its bucket, or
+ * else replaces the entry with the fewest visits, which loses the least information.
+ * Updates lock the bucket's stripe; reads do not, so a reader may see an entry that was
+ * replaced a moment ago and must check the key again afterwards.
+ */
+final class TranspositionTable {
+    static final int WAYS = 4;
+    // Key, visits and value sum
+    static final int BYTES_PER_ENTRY = 8 + 4 + 8;
+
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final VarHandle DOUBLES = MethodHandles.arrayElementVarHandle(double[].class);
+    private static final int LOCK_STRIPES = 256;
+
+    private final long[] keys;
+    private final int[] visits;
+    private final double[] valueSum;
+    private final int bucketMask;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder shared = new LongAdder();
+    private final LongAdder replacements = new LongAdder();
+
+    // Room for at least entries positions, rounded up to a power of two buckets
+    TranspositionTable(int entries) {
+        int buckets = Integer.highestOneBit(Math.max(1, (entries + WAYS - 1) / WAYS - 1) << 1);
+        bucketMask = buckets - 1;
+        keys = new long[buckets * WAYS];
+        visits = new int[buckets * WAYS];
+        valueSum = new double[buckets * WAYS];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    // 0 marks an empty entry, so a position hashing to 0 is stored as 1
+    private static long key(long hash) {
+        return hash == 0 ? 1 : hash;
+    }
+
+    private int bucket(long key) {
+        return (int) (key ^ key >>> 32) & bucketMask;
+    }
+
+    // Entry holding the position, or -1; counts towards the hit rate
+    int find(long hash) {
+        long key = key(hash);
+        int first = bucket(key) * WAYS;
+        probes.increment();
+        for (int slot = first; slot < first + WAYS; slot++) {
+            if ((long) LONGS.getOpaque(keys, slot) == key) {
+                hits.increment();
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    // True while slot still holds the position; check after reading its totals
+    boolean holds(int slot, long hash) {
+        return (long) LONGS.getAcquire(keys, slot) == key(hash);
+    }
+
+    int visits(int slot) {
+        return (int) INTS.getOpaque(visits, slot);
+    }
+
+    double valueSum(int slot) {
+        return (double) DOUBLES.getOpaque(valueSum, slot);
+    }
+
+    // Adds one visit with the given value to the position, claiming an entry for it if needed
+    void update(long hash, double value) {
+        long key = key(hash);
+        int b = bucket(key);
+        int first = b * WAYS;
+        synchronized (locks[b & (LOCK_STRIPES - 1)]) {
+            int target = -1;
+            int weakest = first;
+            for (int slot = first; slot < first + WAYS; slot++) {
+                if (keys[slot] == key) {
+                    target = slot;
+                    break;
+                }
+                if (keys[slot] == 0 && target < 0) {
+                    target = slot;
+                }
+                if (visits[slot] < visits[weakest]) weakest = slot;
+            }
+            if (target < 0) {
+                target = weakest;
+                replacements.increment();
+            }
+            if (keys[target] != key) {
+                // Clear the totals before publishing the new key
+                visits[target] = 0;
+                valueSum[target] = 0.0;
+                LONGS.setRelease(keys, target, key);
+            }
+            visits[target]++;
+            valueSum[target] += value;
+        }
+    }
+
+    // Counts a hit whose totals were used in place of a node's own
+    void recordShared() {
+        shared.increment();
+    }
+
+    void clear() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            synchronized (locks[i]) {
+                for (int b = i; b <= bucketMask; b += LOCK_STRIPES) {
+                    java.util.Arrays.fill(keys, b * WAYS, b * WAYS + WAYS, 0L);
+                }
+            }
+        }
+        probes.reset();
+        hits.reset();
+        shared.reset();
+        replacements.reset();
+    }
+
+    int capacity() {
+        return keys.length;
+    }
+
+    long bytes() {
+        return (long) keys.length * BYTES_PER_ENTRY;
+    }
+
+    double hitRate() {
+        long total = probes.sum();
+        return total == 0 ? 0.0 : (double) hits.sum() / total;
+    }
+
+    double shareRate() {
+        long total = probes.sum();
+        return total == 0 ? 0.0 : (double) shared.sum() / total;
+    }
+
+    long replacements() {
+        return replacements.sum();
+    }
+}
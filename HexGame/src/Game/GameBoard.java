@@ -11,6 +11,9 @@ import java.awt.event.*;
 import java.io.File;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.swing.Timer;
 
 public class GameBoard extends JPanel implements KeyListener{
@@ -31,6 +34,11 @@ public class GameBoard extends JPanel implements KeyListener{
     private HiveAI aiOpponent;
     private Color aiColor;
 
+    // The AI thinks on a virtual thread so the window keeps painting; results come back on the EDT
+    private final transient ExecutorService aiExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private transient Future<?> aiTask;
+    private Timer aiProgress;
+
     public GameBoard(File saveGame) {
         //Set Game Size and Colour
         setPreferredSize(new Dimension(1200, 700));
@@ -43,7 +51,7 @@ public class GameBoard extends JPanel implements KeyListener{
         placementValidator = new PlacementValidator(gameState.getBoard());
         movementValidator = new MovementValidator(gameState.getBoard());
         moveCalculator = new MoveCalculator(gameState.getBoard(), movementValidator);
-        winChecker = new WinConditionChecker(gameState.getBoard());
+        winChecker = new WinConditionChecker(gameState);
         renderer = new GameRenderer(gameState);
 
         selectedPiece = null;
@@ -91,6 +99,8 @@ public class GameBoard extends JPanel implements KeyListener{
     }
 
     private void handleMousePressed(Point p) {
+        if (isAIThinking()) return;
+
         // Check if clicking on reserve piece
         if (p.x < 200) {
             Piece piece = renderer.getPieceAtPoint(p, gameState.getReserve(gameState.getCurrentPlayer()));
@@ -138,12 +148,7 @@ public class GameBoard extends JPanel implements KeyListener{
             HexCoord coord = renderer.getHexAtPoint(p);
 
             if (placementValidator.canPlaceAt(coord, draggedPiece)) {
-                gameState.getBoard().placePiece(draggedPiece, coord);
-                gameState.removePieceFromReserve(draggedPiece);
-
-                if (draggedPiece.getType() == PieceType.QUEEN) {
-                    gameState.setQueenPlaced(draggedPiece.getColor());
-                }
+                gameState.placePiece(draggedPiece, coord);
                 saveGame(coord);
 
                 selectedPiece = null;
@@ -159,7 +164,7 @@ public class GameBoard extends JPanel implements KeyListener{
             HexCoord coord = renderer.getHexAtPoint(p);
 
             if (validMoves.contains(coord)) {
-                gameState.getBoard().movePiece(selectedCoord, coord);
+                gameState.movePiece(selectedCoord, coord);
                 saveGame(coord);
                 selectedPiece = null;
                 selectedCoord = null;
@@ -180,6 +185,7 @@ public class GameBoard extends JPanel implements KeyListener{
         String winMessage = winChecker.checkWin(saveFile);
         if (winMessage != null) {
             statusLabel.setText(winMessage);
+            if (aiOpponent != null) aiOpponent.stopPondering();
             return;
         }
 
@@ -203,11 +209,46 @@ public class GameBoard extends JPanel implements KeyListener{
             Timer timer = new Timer(800, e -> makeAIMove());
             timer.setRepeats(false);
             timer.start();
+        } else if (aiOpponent != null) {
+            // Think on the player's time; the AI's search picks up from the move they make
+            aiOpponent.startPondering(gameState);
         }
     }
 
+    private boolean isAIThinking() {
+        return aiTask != null && !aiTask.isDone();
+    }
+
     private void makeAIMove() {
-        AIMove move = aiOpponent.getBestMove(gameState, aiColor);
+        // A board out of its window resumes in addNotify
+        if (aiExecutor.isShutdown() || !isDisplayable() || isAIThinking()) return;
+
+        GameState snapshot = gameState.clone();
+        long started = System.currentTimeMillis();
+        aiProgress = new Timer(100, e -> statusLabel.setText(String.format("AI thinking... %.1fs, %d iterations",
+                (System.currentTimeMillis() - started) / 1000.0, aiOpponent.getSearchProgress())));
+        aiProgress.start();
+
+        aiTask = aiExecutor.submit(() -> {
+            try {
+                AIMove move = aiOpponent.getBestMove(snapshot, aiColor);
+                if (!Thread.currentThread().isInterrupted()) {
+                    SwingUtilities.invokeLater(() -> applyAIMove(move));
+                }
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                SwingUtilities.invokeLater(() -> {
+                    stopAIProgress();
+                    statusLabel.setText("AI failed: " + e.getMessage());
+                });
+            }
+        });
+    }
+
+    private void applyAIMove(AIMove move) {
+        stopAIProgress();
+        // A search cancelled after it finished may still have posted its move
+        if (aiExecutor.isShutdown() || aiTask == null || aiTask.isCancelled()) return;
         if (move == null) {
             System.out.println("AI has no legal moves");
             return;
@@ -226,17 +267,13 @@ public class GameBoard extends JPanel implements KeyListener{
 
             System.out.println("Placing: " + actualPiece + " (from reserve)");
 
-            gameState.getBoard().placePiece(actualPiece, move.getTo());
-            gameState.removePieceFromReserve(actualPiece);
-
-            if (actualPiece.getType() == PieceType.QUEEN) {
-                gameState.setQueenPlaced(aiColor);
-            }
+            gameState.placePiece(actualPiece, move.getTo());
 
             selectedPiece = actualPiece;
         } else if (move.getType() == MoveType.MOVE) {
-            gameState.getBoard().movePiece(move.getFrom(), move.getTo());
-            selectedPiece = move.getPiece();
+            // The move was found on a copy; take the piece from the real board
+            selectedPiece = move.findActualPiece(gameState);
+            gameState.movePiece(move.getFrom(), move.getTo());
         }
 
         saveGame(move.getTo());
@@ -244,17 +281,48 @@ public class GameBoard extends JPanel implements KeyListener{
         nextTurn();
     }
 
+    private void stopAIProgress() {
+        if (aiProgress != null) {
+            aiProgress.stop();
+            aiProgress = null;
+        }
+    }
+
+    // Cancels any AI search; the board can think again once it is shown
+    public void cancelAI() {
+        stopAIProgress();
+        if (aiOpponent != null) aiOpponent.cancelSearch();
+        if (aiTask != null) aiTask.cancel(true);
+    }
+
+    // Cancels any AI search and releases the AI's executor for good; called when the window closes
+    public void shutdownAI() {
+        cancelAI();
+        aiExecutor.shutdownNow();
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        // Pick up an AI turn that was cancelled while the board was out of its window
+        if (aiOpponent != null && gameState.getCurrentPlayer().equals(aiColor) && !gameState.getResult().isOver()) {
+            makeAIMove();
+        }
+    }
+
+    @Override
+    public void removeNotify() {
+        cancelAI();
+        super.removeNotify();
+    }
+
     public static void placeReplayPiece(HexCoord coord, Piece piece, GameState gameState) {
         if (coord != null && piece != null && gameState != null) {
             HexCoord existingCoord = findPieceOnBoard(piece, gameState.getBoard());
             if (existingCoord != null) {
-                gameState.getBoard().movePiece(existingCoord, coord);
+                gameState.movePiece(existingCoord, coord);
             } else {
-                gameState.getBoard().placePiece(piece, coord);
-            }
-
-            if (piece.getType() == PieceType.QUEEN) {
-                gameState.setQueenPlaced(piece.getColor());
+                gameState.placePiece(piece, coord);
             }
 
             gameState.nextPlayer();
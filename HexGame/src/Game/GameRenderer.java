@@ -30,7 +30,7 @@ class GameRenderer {
     private void drawHexGrid(Graphics2D g2) {
         for (int q = -12; q <= 12; q++) {
             for (int r = -15; r <= 15; r++) {
-                HexCoord coord = new HexCoord(q, r);
+                HexCoord coord = HexCoord.of(q, r);
                 Point2D.Double center = coord.toPixel(HEX_SIZE);
                 center.x += BOARD_CENTER_X;
                 center.y += BOARD_CENTER_Y;
@@ -0,0 +1,18 @@
+package Game;
+
+import java.awt.Color;
+
+public enum GameResult {
+    WHITE_WIN,
+    BLACK_WIN,
+    DRAW,
+    ONGOING;
+
+    public boolean isOver() {
+        return this != ONGOING;
+    }
+
+    public boolean isWinFor(Color color) {
+        return this == (color.equals(Color.WHITE) ? WHITE_WIN : BLACK_WIN);
+    }
+}
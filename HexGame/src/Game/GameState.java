@@ -2,7 +2,6 @@ package Game;
 
 import java.awt.Color;
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class GameState {
     private HiveBoard board;
@@ -12,6 +11,9 @@ public class GameState {
     private int turnCount;
     private int whiteTurnCount;
     private int blackTurnCount;
+    private PositionHistory positionHistory;
+    private long hash;
+    private Deque<Undo> undoStack;
 
     public GameState() {
         this.board = new HiveBoard();
@@ -19,10 +21,34 @@ public class GameState {
         this.currentPlayer = Color.WHITE;
         this.queenPlaced = new HashMap<>();
         this.turnCount = 0;
+        this.positionHistory = new PositionHistory();
+        this.hash = 0L;
+        this.undoStack = new ArrayDeque<>();
 
         initializeReserves();
     }
 
+    // Deep copy; the undo history is not carried over
+    private GameState(GameState other) {
+        this.board = other.board.copy();
+        this.reserves = new HashMap<>();
+        for (Color color : new Color[]{Color.WHITE, Color.BLACK}) {
+            List<Piece> clonedReserve = new ArrayList<>();
+            for (Piece p : other.reserves.get(color)) {
+                clonedReserve.add(new Piece(p.getType(), p.getColor(), p.getInstanceNumber()));
+            }
+            this.reserves.put(color, clonedReserve);
+        }
+        this.currentPlayer = other.currentPlayer;
+        this.queenPlaced = new HashMap<>(other.queenPlaced);
+        this.turnCount = other.turnCount;
+        this.whiteTurnCount = other.whiteTurnCount;
+        this.blackTurnCount = other.blackTurnCount;
+        this.positionHistory = other.positionHistory.copy();
+        this.hash = other.hash;
+        this.undoStack = new ArrayDeque<>();
+    }
+
     private void initializeReserves() {
         reserves.put(Color.WHITE, createPieceSet(Color.WHITE));
         reserves.put(Color.BLACK, createPieceSet(Color.BLACK));
@@ -35,11 +61,17 @@ public class GameState {
         for (PieceType type : PieceType.values()) {
             for (int i = 0; i < type.getCount(); i++) {
                 pieces.add(new Piece(type, color, i + 1));
+                hash ^= Zobrist.reserve(color, type, i + 1);
             }
         }
         return pieces;
     }
 
+    // Zobrist key of the board, both reserves and the side to move
+    public long getHash() {
+        return board.getHash() ^ hash;
+    }
+
     public HiveBoard getBoard() {
         return board;
     }
@@ -53,7 +85,9 @@ public class GameState {
     }
 
     public void nextPlayer() {
+        undoStack.push(new Undo(Undo.TURN, null, null, null, 0));
         currentPlayer = currentPlayer.equals(Color.WHITE) ? Color.BLACK : Color.WHITE;
+        hash ^= Zobrist.SIDE_TO_MOVE;
         turnCount++;
         if (currentPlayer.equals(Color.WHITE)) {
             whiteTurnCount++;
@@ -71,7 +105,27 @@ public class GameState {
     }
 
     public void setQueenPlaced(Color color) {
-        queenPlaced.put(color, true);
+        if (!queenPlaced.get(color)) {
+            undoStack.push(new Undo(Undo.QUEEN, null, null, null, 0, color, 0L));
+            queenPlaced.put(color, true);
+        }
+    }
+
+    // Constant time: the packed board keeps each queen's occupied-neighbour count up to date
+    public GameResult getResult() {
+        PackedBoard packed = board.getPacked();
+        boolean whiteSurrounded = packed.isQueenSurrounded(true);
+        boolean blackSurrounded = packed.isQueenSurrounded(false);
+
+        if (whiteSurrounded && blackSurrounded) return GameResult.DRAW;
+        if (whiteSurrounded) return GameResult.BLACK_WIN;
+        if (blackSurrounded) return GameResult.WHITE_WIN;
+        return GameResult.ONGOING;
+    }
+
+    // Turns the colour has had, counted as mustPlaceQueen counts them
+    int turnsOf(Color color) {
+        return color.equals(Color.WHITE) ? whiteTurnCount : blackTurnCount;
     }
 
     public boolean mustPlaceQueen() {
@@ -81,91 +135,127 @@ public class GameState {
 
     public void removePieceFromReserve(Piece piece) {
         List<Piece> reserve = reserves.get(piece.getColor());
-        if (reserve != null) {
-            reserve.removeIf(p -> p.getType() == piece.getType()
+        if (reserve == null) return;
+
+        for (int i = 0; i < reserve.size(); i++) {
+            Piece p = reserve.get(i);
+            if (p.getType() == piece.getType()
                     && p.getColor().equals(piece.getColor())
-                    && p.getInstanceNumber() == piece.getInstanceNumber());
+                    && p.getInstanceNumber() == piece.getInstanceNumber()) {
+                hash ^= Zobrist.reserve(p.getColor(), p.getType(), countInReserve(reserve, p.getType()));
+                reserve.remove(i);
+                undoStack.push(new Undo(Undo.RESERVE, p, null, null, i));
+                return;
+            }
         }
     }
 
-    public GameState clone() {
-        GameState cloned = new GameState();
-
-        // Deep clone board
-        HiveBoard clonedBoard = new HiveBoard();
-        for (Map.Entry<HexCoord, List<Piece>> entry : this.board.getBoard().entrySet()) {
-            HexCoord coord = new HexCoord(entry.getKey().getQ(), entry.getKey().getR());
-            List<Piece> clonedStack = new ArrayList<>();
-            for (Piece p : entry.getValue()) {
-                Piece clonedPiece = new Piece(p.getType(), p.getColor(), p.getInstanceNumber());
-                if (p.getPosition() != null) {
-                    clonedPiece.setPosition(new HexCoord(p.getPosition().getQ(), p.getPosition().getR()));
-                }
-                clonedStack.add(clonedPiece);
-            }
-            clonedBoard.getBoard().put(coord, clonedStack);
+    private static int countInReserve(List<Piece> reserve, PieceType type) {
+        int count = 0;
+        for (Piece p : reserve) {
+            if (p.getType() == type) count++;
         }
+        return count;
+    }
 
-        // Use reflection to set private fields
-        try {
-            java.lang.reflect.Field boardField = GameState.class.getDeclaredField("board");
-            boardField.setAccessible(true);
-            boardField.set(cloned, clonedBoard);
-
-            // Clone reserves
-            Map<Color, List<Piece>> clonedReserves = new HashMap<>();
-            for (Color color : new Color[]{Color.WHITE, Color.BLACK}) {
-                List<Piece> clonedReserve = new ArrayList<>();
-                for (Piece p : this.reserves.get(color)) {
-                    clonedReserve.add(new Piece(p.getType(), p.getColor(), p.getInstanceNumber()));
-                }
-                clonedReserves.put(color, clonedReserve);
-            }
-
-            java.lang.reflect.Field reservesField = GameState.class.getDeclaredField("reserves");
-            reservesField.setAccessible(true);
-            reservesField.set(cloned, clonedReserves);
-
-            // Copy other fields
-            java.lang.reflect.Field currentPlayerField = GameState.class.getDeclaredField("currentPlayer");
-            currentPlayerField.setAccessible(true);
-            currentPlayerField.set(cloned, this.currentPlayer);
+    // Places a piece from the reserve, recording everything needed to undo it
+    public void placePiece(Piece piece, HexCoord coord) {
+        board.placePiece(piece, coord);
+        undoStack.push(new Undo(Undo.PLACE, piece, null, coord, 0));
+        removePieceFromReserve(piece);
+        if (piece.getType() == PieceType.QUEEN) {
+            setQueenPlaced(piece.getColor());
+        }
+    }
 
-            java.lang.reflect.Field turnCountField = GameState.class.getDeclaredField("turnCount");
-            turnCountField.setAccessible(true);
-            turnCountField.set(cloned, this.turnCount);
+    public void movePiece(HexCoord from, HexCoord to) {
+        board.movePiece(from, to);
+        undoStack.push(new Undo(Undo.MOVE, null, from, to, 0));
+    }
 
-            java.lang.reflect.Field queenPlacedField = GameState.class.getDeclaredField("queenPlaced");
-            queenPlacedField.setAccessible(true);
-            Map<Color, Boolean> clonedQueenPlaced = new HashMap<>(this.queenPlaced);
-            queenPlacedField.set(cloned, clonedQueenPlaced);
+    // Number of recorded changes; pass to undoTo to roll back everything made since
+    public int getUndoDepth() {
+        return undoStack.size();
+    }
 
-        } catch (Exception e) {
-            System.err.println("Error cloning GameState: " + e.getMessage());
-            e.printStackTrace();
+    public void undoTo(int depth) {
+        while (undoStack.size() > depth) {
+            undo();
         }
+    }
 
-        return cloned;
+    public void undo() {
+        Undo u = undoStack.pop();
+        switch (u.kind) {
+            case Undo.PLACE:
+                board.removeTopPiece(u.to);
+                break;
+            case Undo.MOVE:
+                board.movePiece(u.to, u.from);
+                break;
+            case Undo.RESERVE:
+                List<Piece> reserve = reserves.get(u.piece.getColor());
+                reserve.add(u.index, u.piece);
+                hash ^= Zobrist.reserve(u.piece.getColor(), u.piece.getType(), countInReserve(reserve, u.piece.getType()));
+                break;
+            case Undo.QUEEN:
+                queenPlaced.put(u.color, false);
+                break;
+            case Undo.TURN:
+                if (currentPlayer.equals(Color.WHITE)) {
+                    whiteTurnCount--;
+                } else {
+                    blackTurnCount--;
+                }
+                turnCount--;
+                currentPlayer = currentPlayer.equals(Color.WHITE) ? Color.BLACK : Color.WHITE;
+                hash ^= Zobrist.SIDE_TO_MOVE;
+                break;
+            case Undo.REPETITION:
+                positionHistory.decrement(u.position);
+                break;
+        }
     }
 
-    private Map<String, Integer> positionHistory = new HashMap<>();
+    public GameState clone() {
+        return new GameState(this);
+    }
 
     public boolean isThreefoldRepetition() {
-        String position = getBoardHash();
-        int count = positionHistory.getOrDefault(position, 0) + 1;
-        positionHistory.put(position, count);
+        long position = getHash();
+        int count = positionHistory.increment(position);
+        undoStack.push(new Undo(Undo.REPETITION, null, null, null, 0, null, position));
         return count >= 3;
     }
 
-    private String getBoardHash() {
-        // Create unique string representation of board (sorted for determinism)
-        List<HexCoord> coords = new ArrayList<>(board.getAllCoordinates());
-        coords.sort(Comparator.comparingInt(HexCoord::getQ).thenComparingInt(HexCoord::getR));
-        StringBuilder hash = new StringBuilder();
-        for (HexCoord coord : coords) {
-            hash.append(coord.getQ()).append(",").append(coord.getR()).append(":");
-            hash.append(board.getTopPieceAt(coord).toString()).append(";");
+    private static class Undo {
+        static final int PLACE = 0;
+        static final int MOVE = 1;
+        static final int RESERVE = 2;
+        static final int QUEEN = 3;
+        static final int TURN = 4;
+        static final int REPETITION = 5;
+
+        final int kind;
+        final Piece piece;
+        final HexCoord from;
+        final HexCoord to;
+        final int index;
+        final Color color;
+        final long position;
+
+        Undo(int kind, Piece piece, HexCoord from, HexCoord to, int index) {
+            this(kind, piece, from, to, index, null, 0L);
+        }
+
+        Undo(int kind, Piece piece, HexCoord from, HexCoord to, int index, Color color, long position) {
+            this.kind = kind;
+            this.piece = piece;
+            this.from = from;
+            this.to = to;
+            this.index = index;
+            this.color = color;
+            this.position = position;
         }
-        return hash.toString();
     }
-}
\ No newline at end of file
+}
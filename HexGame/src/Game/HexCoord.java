@@ -2,18 +2,53 @@ package Game;
 
 import java.awt.geom.Point2D;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Objects;
 
 public class HexCoord {
+    // Axial directions in ring order: E, NE, NW, W, SW, SE
+    public static final int[] DIR_Q = {1, 1, 0, -1, -1, 0};
+    public static final int[] DIR_R = {0, -1, -1, 0, 1, 1};
+
+    // The two cells shared by a cell and its neighbour in each direction, as directions from the cell
+    private static final int[][] GATES = {{5, 1}, {0, 2}, {1, 3}, {2, 4}, {3, 5}, {4, 0}};
+
+    // Interned coordinates for the region the game is played in
+    private static final int INTERN_RADIUS = 32;
+    private static final int INTERN_SIZE = INTERN_RADIUS * 2;
+    private static final HexCoord[] INTERNED = new HexCoord[INTERN_SIZE * INTERN_SIZE];
+
+    static {
+        for (int q = -INTERN_RADIUS; q < INTERN_RADIUS; q++) {
+            for (int r = -INTERN_RADIUS; r < INTERN_RADIUS; r++) {
+                INTERNED[(q + INTERN_RADIUS) * INTERN_SIZE + r + INTERN_RADIUS] = new HexCoord(q, r);
+            }
+        }
+    }
+
     private final int q;
     private final int r;
+    private List<HexCoord> neighbors;
 
     public HexCoord(int q, int r) {
         this.q = q;
         this.r = r;
     }
 
+    // Shared instance for (q, r); only coordinates far outside the play area are allocated
+    public static HexCoord of(int q, int r) {
+        int iq = q + INTERN_RADIUS;
+        int ir = r + INTERN_RADIUS;
+        if (iq >= 0 && iq < INTERN_SIZE && ir >= 0 && ir < INTERN_SIZE) {
+            return INTERNED[iq * INTERN_SIZE + ir];
+        }
+        return new HexCoord(q, r);
+    }
+
+    public static int gateDirection(int dir, int side) {
+        return GATES[dir][side];
+    }
+
     public int getQ() {
         return q;
     }
@@ -31,18 +66,25 @@ public class HexCoord {
 
     @Override
     public int hashCode() {
-        return Objects.hash(q, r);
+        return 31 * q + r;
     }
 
+    public HexCoord neighbor(int dir) {
+        return of(q + DIR_Q[dir], r + DIR_R[dir]);
+    }
+
+    // Built once per coordinate; hot loops should iterate directions with neighbor(dir) instead
     public List<HexCoord> getNeighbors() {
-        return Arrays.asList(
-                new HexCoord(q + 1, r),
-                new HexCoord(q - 1, r),
-                new HexCoord(q, r + 1),
-                new HexCoord(q, r - 1),
-                new HexCoord(q + 1, r - 1),
-                new HexCoord(q - 1, r + 1)
-        );
+        List<HexCoord> result = neighbors;
+        if (result == null) {
+            HexCoord[] cells = new HexCoord[6];
+            for (int d = 0; d < 6; d++) {
+                cells[d] = neighbor(d);
+            }
+            result = Collections.unmodifiableList(Arrays.asList(cells));
+            neighbors = result;
+        }
+        return result;
     }
 
     public Point2D.Double toPixel(double size) {
@@ -73,6 +115,6 @@ public class HexCoord {
             rr = -rq - rs;
         }
 
-        return new HexCoord(rq, rr);
+        return of(rq, rr);
     }
 }
@@ -4,9 +4,23 @@ import java.util.*;
 
 public class HiveBoard {
     private Map<HexCoord, List<Piece>> board;
+    private PackedBoard packed;
+    private long hash;
 
     public HiveBoard() {
         this.board = new HashMap<>();
+        this.packed = new PackedBoard();
+        this.hash = 0L;
+    }
+
+    // Primitive copy of this board kept in step with every change, for move generation
+    public PackedBoard getPacked() {
+        return packed;
+    }
+
+    // Zobrist key of every piece at its cell and stack height
+    public long getHash() {
+        return hash;
     }
 
     public Map<HexCoord, List<Piece>> getBoard() {
@@ -38,12 +52,17 @@ public class HiveBoard {
     public void placePiece(Piece piece, HexCoord coord) {
         piece.setPosition(coord);
         board.putIfAbsent(coord, new ArrayList<>());
-        board.get(coord).add(piece);
+        List<Piece> stack = board.get(coord);
+        hash ^= pieceKey(piece, coord, stack.size());
+        stack.add(piece);
+        packed.push(PackedBoard.index(coord), PackedBoard.code(piece));
     }
 
     public void movePiece(HexCoord from, HexCoord to) {
         List<Piece> fromStack = board.get(from);
         Piece piece = fromStack.remove(fromStack.size() - 1);
+        hash ^= pieceKey(piece, from, fromStack.size());
+        int code = packed.pop(PackedBoard.index(from));
 
         if (fromStack.isEmpty()) {
             board.remove(from);
@@ -51,48 +70,55 @@ public class HiveBoard {
 
         piece.setPosition(to);
         board.putIfAbsent(to, new ArrayList<>());
-        board.get(to).add(piece);
+        List<Piece> toStack = board.get(to);
+        hash ^= pieceKey(piece, to, toStack.size());
+        toStack.add(piece);
+        packed.push(PackedBoard.index(to), code);
     }
 
-    public boolean isHiveConnected() {
-        if (board.isEmpty()) return true;
-
-        Set<HexCoord> visited = new HashSet<>();
-        Queue<HexCoord> queue = new LinkedList<>();
-
-        HexCoord start = board.keySet().iterator().next();
-        queue.add(start);
-        visited.add(start);
-
-        while (!queue.isEmpty()) {
-            HexCoord current = queue.poll();
-            for (HexCoord neighbor : current.getNeighbors()) {
-                if (board.containsKey(neighbor) && !visited.contains(neighbor)) {
-                    visited.add(neighbor);
-                    queue.add(neighbor);
-                }
+    // Reverses placePiece; the piece goes back to having no position
+    public Piece removeTopPiece(HexCoord coord) {
+        List<Piece> stack = board.get(coord);
+        Piece piece = stack.remove(stack.size() - 1);
+        hash ^= pieceKey(piece, coord, stack.size());
+        packed.pop(PackedBoard.index(coord));
+        if (stack.isEmpty()) {
+            board.remove(coord);
+        }
+        piece.setPosition(null);
+        return piece;
+    }
+
+    // Deep copy with fresh Piece instances, rebuilt bottom-up so stacks keep their order
+    public HiveBoard copy() {
+        HiveBoard copy = new HiveBoard();
+        for (Map.Entry<HexCoord, List<Piece>> entry : board.entrySet()) {
+            for (Piece p : entry.getValue()) {
+                copy.placePiece(new Piece(p.getType(), p.getColor(), p.getInstanceNumber()), entry.getKey());
             }
         }
+        return copy;
+    }
+
+    private static long pieceKey(Piece piece, HexCoord coord, int height) {
+        return Zobrist.piece(piece.getColor(), piece.getType(), coord.getQ(), coord.getR(), height);
+    }
+
+    public boolean isHiveConnected() {
+        return packed.isConnected();
+    }
 
-        return visited.size() == board.size();
+    // True if lifting the whole stack at coord would split the hive
+    public boolean isArticulationPoint(HexCoord coord) {
+        return packed.isArticulationPoint(PackedBoard.index(coord), hash);
     }
 
     public boolean hasAdjacentPiece(HexCoord coord) {
-        for (HexCoord neighbor : coord.getNeighbors()) {
-            if (board.containsKey(neighbor)) {
-                return true;
-            }
-        }
-        return false;
+        return packed.hasAdjacentPiece(PackedBoard.index(coord));
     }
 
     public boolean hasAdjacentPieceExcluding(HexCoord coord, HexCoord exclude) {
-        for (HexCoord neighbor : coord.getNeighbors()) {
-            if (!neighbor.equals(exclude) && board.containsKey(neighbor)) {
-                return true;
-            }
-        }
-        return false;
+        return packed.hasAdjacentPieceExcluding(PackedBoard.index(coord), PackedBoard.index(exclude));
     }
 
     public Set<HexCoord> getAllCoordinates() {
@@ -4,120 +4,116 @@ import java.util.*;
 
 public class MoveCalculator {
     private HiveBoard board;
+    private PackedBoard packed;
     private MovementValidator validator;
 
     public MoveCalculator(HiveBoard board, MovementValidator validator) {
         this.board = board;
+        this.packed = board.getPacked();
+        this.validator = validator;
+    }
+
+    MoveCalculator(PackedBoard packed, MovementValidator validator) {
+        this.packed = packed;
         this.validator = validator;
     }
 
     public List<HexCoord> getValidMoves(Piece piece, HexCoord from) {
-        List<HexCoord> moves = new ArrayList<>();
+        int[] out = packed.moveBuffer;
+        int n = getValidMoves(PackedBoard.index(from), piece.getType(), out);
+
+        List<HexCoord> moves = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            moves.add(PackedBoard.toCoord(out[i], from));
+        }
+        return moves;
+    }
 
-        switch (piece.getType()) {
+    // Writes destination cell indices into out and returns how many there are
+    public int getValidMoves(int from, PieceType type, int[] out) {
+        if (validator.isPinned(from)) {
+            return 0;
+        }
+
+        switch (type) {
             case QUEEN:
-                moves = getQueenMoves(from);
-                break;
+                return getQueenMoves(from, out);
             case ANT:
-                moves = getAntMoves(from);
-                break;
+                return getAntMoves(from, out);
             case SPIDER:
-                moves = getSpiderMoves(from);
-                break;
+                return getSpiderMoves(from, out);
             case GRASSHOPPER:
-                moves = getGrasshopperMoves(from);
-                break;
+                return getGrasshopperMoves(from, out);
             case BEETLE:
-                moves = getBeetleMoves(from);
-                break;
-        }
-
-        moves.removeIf(coord -> validator.breaksHive(from, coord));
-        return moves;
-    }
-
-    private List<HexCoord> getQueenMoves(HexCoord from) {
-        List<HexCoord> moves = new ArrayList<>();
-        for (HexCoord neighbor : from.getNeighbors()) {
-            if (validator.canSlideToBasic(from, neighbor)) {
-                moves.add(neighbor);
-            }
+                return getBeetleMoves(from, out);
         }
-        return moves;
+        return 0;
     }
 
-    private List<HexCoord> getAntMoves(HexCoord from) {
-        Set<HexCoord> visited = new HashSet<>();
-        Queue<HexCoord> queue = new LinkedList<>();
-        List<HexCoord> moves = new ArrayList<>();
-
-        queue.add(from);
-        visited.add(from);
-
-        while (!queue.isEmpty()) {
-            HexCoord current = queue.poll();
-            for (HexCoord neighbor : current.getNeighbors()) {
-                if (!visited.contains(neighbor) && validator.canSlideTo(from, current, neighbor)) {
-                    visited.add(neighbor);
-                    if (!neighbor.equals(from)) {
-                        queue.add(neighbor);
-                        moves.add(neighbor);
-                    }
-                }
+    private int getQueenMoves(int from, int[] out) {
+        int n = 0;
+        for (int d = 0; d < 6; d++) {
+            if (validator.canSlideToBasic(from, d)) {
+                out[n++] = PackedBoard.neighbor(from, d);
             }
         }
-
-        return moves;
+        return n;
     }
 
-    private List<HexCoord> getSpiderMoves(HexCoord from) {
-        List<HexCoord> moves = new ArrayList<>();
-        Set<HexCoord> visited = new HashSet<>();
-        spiderDFS(from, from, visited, 0, moves);
-        return moves;
+    // Bitset flood over the position's shared perimeter graph
+    private int getAntMoves(int from, int[] out) {
+        return packed.perimeter(validator.positionKey()).antReach(from, validator, out);
     }
 
-    private void spiderDFS(HexCoord start, HexCoord current, Set<HexCoord> visited,
-                           int depth, List<HexCoord> moves) {
-        if (depth == 3) {
-            if (!current.equals(start)) {
-                moves.add(current);
-            }
-            return;
-        }
-
-        visited.add(current);
-        for (HexCoord neighbor : current.getNeighbors()) {
-            if (!visited.contains(neighbor) && validator.canSlideTo(start, current, neighbor)) {
-                spiderDFS(start, neighbor, new HashSet<>(visited), depth + 1, moves);
+    // Every path of exactly three crawl steps that never revisits a cell; destinations deduplicated by stamp
+    private int getSpiderMoves(int from, int[] out) {
+        int[] mark = packed.mark;
+        int found = packed.nextStamp();
+        int n = 0;
+
+        for (int d1 = 0; d1 < 6; d1++) {
+            if (!validator.canSlideTo(from, from, d1)) continue;
+            int first = PackedBoard.neighbor(from, d1);
+
+            for (int d2 = 0; d2 < 6; d2++) {
+                // Stepping back is the only way to revisit a cell in two steps
+                if (d2 == (d1 + 3) % 6 || !validator.canSlideTo(from, first, d2)) continue;
+                int second = PackedBoard.neighbor(first, d2);
+
+                for (int d3 = 0; d3 < 6; d3++) {
+                    if (d3 == (d2 + 3) % 6 || !validator.canSlideTo(from, second, d3)) continue;
+                    int third = PackedBoard.neighbor(second, d3);
+                    if (third == first || mark[third] == found) continue;
+                    mark[third] = found;
+                    out[n++] = third;
+                }
             }
         }
+        return n;
     }
 
-    private List<HexCoord> getGrasshopperMoves(HexCoord from) {
-        List<HexCoord> moves = new ArrayList<>();
-
-        int[][] directions = {{1,0}, {-1,0}, {0,1}, {0,-1}, {1,-1}, {-1,1}};
-        for (int[] dir : directions) {
-            HexCoord current = new HexCoord(from.getQ() + dir[0], from.getR() + dir[1]);
-            if (board.containsCoord(current)) {
-                while (board.containsCoord(current)) {
-                    current = new HexCoord(current.getQ() + dir[0], current.getR() + dir[1]);
+    private int getGrasshopperMoves(int from, int[] out) {
+        int n = 0;
+        for (int d = 0; d < 6; d++) {
+            int current = PackedBoard.neighbor(from, d);
+            if (packed.isOccupied(current)) {
+                while (packed.isOccupied(current)) {
+                    current = PackedBoard.neighbor(current, d);
                 }
-                moves.add(current);
+                out[n++] = current;
             }
         }
-
-        return moves;
+        return n;
     }
 
-    private List<HexCoord> getBeetleMoves(HexCoord from) {
-        List<HexCoord> moves = new ArrayList<>();
-        for (HexCoord neighbor : from.getNeighbors()) {
-            if (board.containsCoord(neighbor) || validator.canSlideToBasic(from, neighbor)) {
-                moves.add(neighbor);
+    private int getBeetleMoves(int from, int[] out) {
+        int n = 0;
+        for (int d = 0; d < 6; d++) {
+            int neighbor = PackedBoard.neighbor(from, d);
+            if (packed.isOccupied(neighbor) || validator.canSlideToBasic(from, d)) {
+                out[n++] = neighbor;
             }
         }
-        return moves;
+        return n;
     }
-}
\ No newline at end of file
+}
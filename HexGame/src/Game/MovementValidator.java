@@ -1,61 +1,87 @@
 package Game;
 
-import java.util.*;
-
 public class MovementValidator {
     private HiveBoard board;
+    private PackedBoard packed;
+    // Key for the cached articulation points when there is no HiveBoard to hash, set by the board's owner
+    private long positionKey;
 
     public MovementValidator(HiveBoard board) {
         this.board = board;
+        this.packed = board.getPacked();
     }
 
-    public boolean breaksHive(HexCoord from, HexCoord to) {
-        List<Piece> fromStack = board.getStackAt(from);
-        if (fromStack.size() > 1) {
-            return false;
-        }
+    MovementValidator(PackedBoard packed) {
+        this.packed = packed;
+    }
 
-        List<Piece> temp = new ArrayList<>(fromStack);
-        board.getBoard().remove(from);
-        boolean connected = board.isHiveConnected();
-        board.getBoard().put(from, temp);
+    void setPositionKey(long key) {
+        this.positionKey = key;
+    }
 
-        return !connected;
+    long positionKey() {
+        return board != null ? board.getHash() : positionKey;
     }
 
-    public boolean canSlideToBasic(HexCoord from, HexCoord to) {
-        if (board.containsCoord(to) && board.getStackAt(to).size() == 1) {
+    public boolean breaksHive(HexCoord from, HexCoord to) {
+        return isPinned(PackedBoard.index(from));
+    }
+
+    public boolean isPinned(HexCoord from) {
+        return isPinned(PackedBoard.index(from));
+    }
+
+    // A piece is pinned if moving it would leave the hive disconnected, wherever it goes
+    public boolean isPinned(int from) {
+        if (packed.height(from) > 1) {
             return false;
         }
+        return packed.isArticulationPoint(from, positionKey());
+    }
 
-        List<HexCoord> commonNeighbors = new ArrayList<>(from.getNeighbors());
-        commonNeighbors.retainAll(to.getNeighbors());
+    public boolean canSlideToBasic(HexCoord from, HexCoord to) {
+        int fromIdx = PackedBoard.index(from);
+        int toIdx = PackedBoard.index(to);
+        for (int d = 0; d < 6; d++) {
+            if (PackedBoard.neighbor(fromIdx, d) == toIdx) return canSlideToBasic(fromIdx, d);
+        }
+        return false;
+    }
 
-        boolean hasGate = false;
-        for (HexCoord common : commonNeighbors) {
-            if (board.containsCoord(common)) {
-                hasGate = true;
-                break;
-            }
+    // Single step from a cell in direction dir, onto an empty cell or a taller stack
+    public boolean canSlideToBasic(int from, int dir) {
+        int to = PackedBoard.neighbor(from, dir);
+        if (packed.height(to) == 1) {
+            return false;
         }
 
-        return hasGate && board.hasAdjacentPiece(to);
+        boolean hasGate = packed.isOccupied(PackedBoard.neighbor(from, HexCoord.gateDirection(dir, 0)))
+                || packed.isOccupied(PackedBoard.neighbor(from, HexCoord.gateDirection(dir, 1)));
+
+        return hasGate && packed.hasAdjacentPiece(to);
     }
 
     public boolean canSlideTo(HexCoord start, HexCoord from, HexCoord to) {
-        if (to.equals(start)) return false;
-        if (board.containsCoord(to)) return false;
+        int fromIdx = PackedBoard.index(from);
+        int toIdx = PackedBoard.index(to);
+        for (int d = 0; d < 6; d++) {
+            if (PackedBoard.neighbor(fromIdx, d) == toIdx) return canSlideTo(PackedBoard.index(start), fromIdx, d);
+        }
+        return false;
+    }
 
-        List<HexCoord> commonNeighbors = new ArrayList<>(from.getNeighbors());
-        commonNeighbors.retainAll(to.getNeighbors());
+    // One step of a ground-level crawl by the piece that started at start, which no longer counts as hive
+    public boolean canSlideTo(int start, int from, int dir) {
+        int to = PackedBoard.neighbor(from, dir);
+        if (to == start) return false;
+        if (packed.isOccupied(to)) return false;
 
+        int left = PackedBoard.neighbor(from, HexCoord.gateDirection(dir, 0));
+        int right = PackedBoard.neighbor(from, HexCoord.gateDirection(dir, 1));
         int blocked = 0;
-        for (HexCoord common : commonNeighbors) {
-            if (board.containsCoord(common) && !common.equals(start)) {
-                blocked++;
-            }
-        }
+        if (left != start && packed.isOccupied(left)) blocked++;
+        if (right != start && packed.isOccupied(right)) blocked++;
 
-        return blocked > 0 && blocked < 2 && board.hasAdjacentPieceExcluding(to, start);
+        return blocked == 1 && packed.hasAdjacentPieceExcluding(to, start);
     }
-}
\ No newline at end of file
+}
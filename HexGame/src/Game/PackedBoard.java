@@ -0,0 +1,340 @@
+package Game;
+
+import java.awt.Color;
+
+/**
+ * Primitive mirror of a HiveBoard for move generation.
+ *
+ * Cells live on a 64x64 torus: axial (q, r) packs into index (q & 63) | (r & 63) << 6.
+ * The hive never spans more than 22 cells plus its perimeter, so two cells that are
+ * in play can never share an index and no recentring is needed.
+ * Directions follow HexCoord's ring order.
+ * Each stack is a long holding one 8-bit piece code per level, bottom level lowest.
+ */
+public class PackedBoard {
+    public static final int SIZE = 64;
+    public static final int CELLS = SIZE * SIZE;
+    private static final int MASK = SIZE - 1;
+    // Empty cells that can touch a hive of 22 pieces
+    public static final int MAX_FRONTIER = 6 * 22;
+
+    // Index offsets per direction, directions as in HexCoord; q and r wrap separately
+    private static final int[] STEP_Q = new int[6];
+    private static final int[] STEP_R = new int[6];
+
+    static {
+        for (int d = 0; d < 6; d++) {
+            STEP_Q[d] = HexCoord.DIR_Q[d];
+            STEP_R[d] = HexCoord.DIR_R[d] << 6;
+        }
+    }
+
+    private final long[] occupied = new long[CELLS / 64];
+    private final byte[] height = new byte[CELLS];
+    private final long[] stacks = new long[CELLS];
+    private int count;
+    private int whiteQueen = -1;
+    private int blackQueen = -1;
+
+    // Placement frontier: per cell, how many neighbouring stacks have a white or black piece on top,
+    // and a bit for every cell with at least one occupied neighbour
+    private final byte[] whiteTops = new byte[CELLS];
+    private final byte[] blackTops = new byte[CELLS];
+    private final long[] frontier = new long[CELLS / 64];
+
+    // Articulation points for the position with key pinnedKey
+    private final long[] pinned = new long[CELLS / 64];
+    private long pinnedKey;
+    private boolean pinnedValid;
+
+    // Perimeter graph for the position with key perimeterKey, built on first use
+    private PerimeterGraph perimeter;
+    private long perimeterKey;
+    private boolean perimeterValid;
+
+    // Scratch space shared by the algorithms that run on this board
+    final int[] discovery = new int[CELLS];
+    final int[] low = new int[CELLS];
+    final int[] mark = new int[CELLS];
+    final int[] queue = new int[CELLS];
+    final int[] path = new int[4];
+    final int[] moveBuffer = new int[CELLS];
+    private int stamp;
+
+    public static int index(int q, int r) {
+        return (q & MASK) | ((r & MASK) << 6);
+    }
+
+    public static int index(HexCoord coord) {
+        return index(coord.getQ(), coord.getR());
+    }
+
+    public static int neighbor(int idx, int dir) {
+        return (idx + STEP_Q[dir] & MASK) | (idx + STEP_R[dir] & MASK << 6);
+    }
+
+    // Absolute coordinate of idx, taking the copy nearest to the anchor cell
+    public static HexCoord toCoord(int idx, HexCoord anchor) {
+        int dq = ((idx & MASK) - anchor.getQ() + SIZE / 2 & MASK) - SIZE / 2;
+        int dr = ((idx >> 6) - anchor.getR() + SIZE / 2 & MASK) - SIZE / 2;
+        return HexCoord.of(anchor.getQ() + dq, anchor.getR() + dr);
+    }
+
+    // 8-bit code: colour in bit 5, type in bits 2-4, instance - 1 in bits 0-1
+    public static int code(Piece piece) {
+        int color = piece.getColor().equals(Color.WHITE) ? 0 : 1;
+        return (color << 5) | (piece.getType().ordinal() << 2) | (piece.getInstanceNumber() - 1);
+    }
+
+    public static boolean isWhite(int code) {
+        return (code & 0x20) == 0;
+    }
+
+    public static int typeOf(int code) {
+        return (code >> 2) & 7;
+    }
+
+    // Makes this board a copy of other; cached analyses are dropped
+    void copyFrom(PackedBoard other) {
+        System.arraycopy(other.occupied, 0, occupied, 0, occupied.length);
+        System.arraycopy(other.height, 0, height, 0, height.length);
+        System.arraycopy(other.stacks, 0, stacks, 0, stacks.length);
+        System.arraycopy(other.whiteTops, 0, whiteTops, 0, whiteTops.length);
+        System.arraycopy(other.blackTops, 0, blackTops, 0, blackTops.length);
+        System.arraycopy(other.frontier, 0, frontier, 0, frontier.length);
+        count = other.count;
+        whiteQueen = other.whiteQueen;
+        blackQueen = other.blackQueen;
+        pinnedValid = false;
+        perimeterValid = false;
+    }
+
+    void push(int idx, int code) {
+        int h = height[idx];
+        if (h == 0) {
+            occupied[idx >> 6] |= 1L << idx;
+            count++;
+            adjustTops(idx, isWhite(code), 1);
+        } else if (isWhite(topCode(idx)) != isWhite(code)) {
+            adjustTops(idx, !isWhite(code), -1);
+            adjustTops(idx, isWhite(code), 1);
+        }
+        stacks[idx] |= (long) code << (h * 8);
+        height[idx] = (byte) (h + 1);
+
+        if (h == 0 && typeOf(code) == PieceType.QUEEN.ordinal()) {
+            if (isWhite(code)) whiteQueen = idx; else blackQueen = idx;
+        }
+    }
+
+    int pop(int idx) {
+        int h = height[idx] - 1;
+        int code = (int) (stacks[idx] >>> (h * 8)) & 0xff;
+        stacks[idx] &= ~(0xffL << (h * 8));
+        height[idx] = (byte) h;
+        if (h == 0) {
+            occupied[idx >> 6] &= ~(1L << idx);
+            count--;
+            adjustTops(idx, isWhite(code), -1);
+            if (idx == whiteQueen) whiteQueen = -1;
+            if (idx == blackQueen) blackQueen = -1;
+        } else if (isWhite(topCode(idx)) != isWhite(code)) {
+            adjustTops(idx, isWhite(code), -1);
+            adjustTops(idx, !isWhite(code), 1);
+        }
+        return code;
+    }
+
+    // Counts a stack topped by the given colour at idx in or out of its neighbours' totals
+    private void adjustTops(int idx, boolean white, int delta) {
+        byte[] tops = white ? whiteTops : blackTops;
+        for (int d = 0; d < 6; d++) {
+            int n = neighbor(idx, d);
+            tops[n] = (byte) (tops[n] + delta);
+            if (whiteTops[n] + blackTops[n] > 0) {
+                frontier[n >> 6] |= 1L << n;
+            } else {
+                frontier[n >> 6] &= ~(1L << n);
+            }
+        }
+    }
+
+    public boolean isOccupied(int idx) {
+        return (occupied[idx >> 6] & (1L << idx)) != 0;
+    }
+
+    public int height(int idx) {
+        return height[idx];
+    }
+
+    public int topCode(int idx) {
+        return (int) (stacks[idx] >>> ((height[idx] - 1) * 8)) & 0xff;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    // Cell of the colour's queen, or -1 if it has not been placed
+    public int queenIndex(boolean white) {
+        return white ? whiteQueen : blackQueen;
+    }
+
+    // Number of neighbouring stacks with a piece of the given colour on top
+    public int adjacentTops(int idx, boolean white) {
+        return white ? whiteTops[idx] : blackTops[idx];
+    }
+
+    // Writes every empty cell touching the hive into out and returns how many there are
+    public int frontierCells(int[] out) {
+        int n = 0;
+        for (int w = 0; w < frontier.length; w++) {
+            for (long bits = frontier[w] & ~occupied[w]; bits != 0; bits &= bits - 1) {
+                out[n++] = (w << 6) + Long.numberOfTrailingZeros(bits);
+            }
+        }
+        return n;
+    }
+
+    // Writes every occupied cell into out and returns how many there are
+    public int occupiedCells(int[] out) {
+        int n = 0;
+        for (int w = 0; w < occupied.length; w++) {
+            for (long bits = occupied[w]; bits != 0; bits &= bits - 1) {
+                out[n++] = (w << 6) + Long.numberOfTrailingZeros(bits);
+            }
+        }
+        return n;
+    }
+
+    public int countOccupiedNeighbors(int idx) {
+        return whiteTops[idx] + blackTops[idx];
+    }
+
+    public boolean isQueenSurrounded(boolean white) {
+        int queen = white ? whiteQueen : blackQueen;
+        return queen >= 0 && whiteTops[queen] + blackTops[queen] == 6;
+    }
+
+    public boolean hasAdjacentPiece(int idx) {
+        for (int d = 0; d < 6; d++) {
+            if (isOccupied(neighbor(idx, d))) return true;
+        }
+        return false;
+    }
+
+    public boolean hasAdjacentPieceExcluding(int idx, int exclude) {
+        for (int d = 0; d < 6; d++) {
+            int n = neighbor(idx, d);
+            if (n != exclude && isOccupied(n)) return true;
+        }
+        return false;
+    }
+
+    // Fresh marker value for the mark array, so visited sets never need clearing
+    int nextStamp() {
+        if (++stamp == Integer.MAX_VALUE) {
+            java.util.Arrays.fill(mark, 0);
+            stamp = 1;
+        }
+        return stamp;
+    }
+
+    public boolean isConnected() {
+        if (count == 0) return true;
+
+        int visit = nextStamp();
+        int start = firstOccupied();
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        mark[start] = visit;
+
+        while (head < tail) {
+            int current = queue[head++];
+            for (int d = 0; d < 6; d++) {
+                int next = neighbor(current, d);
+                if (isOccupied(next) && mark[next] != visit) {
+                    mark[next] = visit;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return tail == count;
+    }
+
+    private int firstOccupied() {
+        for (int w = 0; w < occupied.length; w++) {
+            if (occupied[w] != 0) return (w << 6) + Long.numberOfTrailingZeros(occupied[w]);
+        }
+        return -1;
+    }
+
+    // Slide graph around the hive, shared by every ant and spider in the position; cached per position key
+    public PerimeterGraph perimeter(long positionKey) {
+        if (perimeter == null) {
+            perimeter = new PerimeterGraph(this);
+        }
+        if (!perimeterValid || perimeterKey != positionKey) {
+            perimeter.build();
+            perimeterKey = positionKey;
+            perimeterValid = true;
+        }
+        return perimeter;
+    }
+
+    // True if lifting the whole stack at idx would split the hive; cached per position key
+    public boolean isArticulationPoint(int idx, long positionKey) {
+        if (!pinnedValid || pinnedKey != positionKey) {
+            findArticulationPoints();
+            pinnedKey = positionKey;
+            pinnedValid = true;
+        }
+        return (pinned[idx >> 6] & (1L << idx)) != 0;
+    }
+
+    // Hopcroft-Tarjan over the occupied cells: one DFS computing discovery and low-link times
+    private void findArticulationPoints() {
+        java.util.Arrays.fill(pinned, 0L);
+        if (count < 3) return;
+
+        int root = firstOccupied();
+        int visit = nextStamp();
+        int reached = markArticulationPoints(root, -1, visit, 0);
+
+        // A hive that is already split has no safe piece to lift
+        if (reached < count) {
+            System.arraycopy(occupied, 0, pinned, 0, occupied.length);
+        }
+    }
+
+    // Returns the number of cells discovered so far
+    private int markArticulationPoints(int current, int parent, int visit, int time) {
+        mark[current] = visit;
+        discovery[current] = time;
+        low[current] = time;
+        int discovered = time + 1;
+        int children = 0;
+
+        for (int d = 0; d < 6; d++) {
+            int next = neighbor(current, d);
+            if (!isOccupied(next) || next == parent) continue;
+
+            if (mark[next] != visit) {
+                children++;
+                discovered = markArticulationPoints(next, current, visit, discovered);
+                low[current] = Math.min(low[current], low[next]);
+                if (parent >= 0 && low[next] >= discovery[current]) {
+                    pinned[current >> 6] |= 1L << current;
+                }
+            } else {
+                low[current] = Math.min(low[current], discovery[next]);
+            }
+        }
+
+        if (parent < 0 && children > 1) {
+            pinned[current >> 6] |= 1L << current;
+        }
+        return discovered;
+    }
+}
@@ -0,0 +1,144 @@
+package Game;
+
+/**
+ * The empty cells touching the hive and the slides between them, built once per position.
+ *
+ * Perimeter cells get small local ids so that sets of them are a few longs. Row i of
+ * edges has bit j set if a crawler on cell i can slide to cell j with the hive as it
+ * stands. A moving ant or spider is not part of the hive while it moves, so only steps
+ * into the cells around its own cell need checking without it; everything else is read
+ * from the shared rows.
+ */
+public class PerimeterGraph {
+    // Room for PackedBoard.MAX_FRONTIER cells, rounded up to whole words
+    static final int MAX_CELLS = 192;
+    static final int WORDS = MAX_CELLS / 64;
+
+    private final PackedBoard packed;
+    private final int[] cells = new int[MAX_CELLS];
+    private final int[] neighbors = new int[MAX_CELLS * 6];
+    private final long[] edges = new long[MAX_CELLS * WORDS];
+    private final int[] localId = new int[PackedBoard.CELLS];
+    private final int[] localStamp = new int[PackedBoard.CELLS];
+    private int stamp;
+    private int size;
+    private int words;
+
+    // Per-call scratch sets
+    private final long[] near = new long[WORDS];
+    private final long[] nearAdjacent = new long[WORDS];
+    private final long[] visited = new long[WORDS];
+    private final long[] frontier = new long[WORDS];
+
+    PerimeterGraph(PackedBoard packed) {
+        this.packed = packed;
+    }
+
+    void build() {
+        if (++stamp == Integer.MAX_VALUE) {
+            java.util.Arrays.fill(localStamp, 0);
+            stamp = 1;
+        }
+        size = packed.frontierCells(cells);
+        for (int i = 0; i < size; i++) {
+            localStamp[cells[i]] = stamp;
+            localId[cells[i]] = i;
+        }
+        words = (size + 63) >> 6;
+
+        for (int i = 0; i < size; i++) {
+            int cell = cells[i];
+            java.util.Arrays.fill(edges, i * WORDS, i * WORDS + WORDS, 0L);
+            for (int d = 0; d < 6; d++) {
+                int n = PackedBoard.neighbor(cell, d);
+                int j = localOf(n);
+                neighbors[i * 6 + d] = j;
+                if (j >= 0 && canSlide(cell, d)) {
+                    edges[i * WORDS + (j >> 6)] |= 1L << j;
+                }
+            }
+        }
+    }
+
+    // Slide rule with the whole hive in place: exactly one gate occupied and the target touching the hive
+    private boolean canSlide(int cell, int dir) {
+        int left = PackedBoard.neighbor(cell, HexCoord.gateDirection(dir, 0));
+        int right = PackedBoard.neighbor(cell, HexCoord.gateDirection(dir, 1));
+        int blocked = (packed.isOccupied(left) ? 1 : 0) + (packed.isOccupied(right) ? 1 : 0);
+        return blocked == 1 && packed.hasAdjacentPiece(PackedBoard.neighbor(cell, dir));
+    }
+
+    private int localOf(int cell) {
+        return localStamp[cell] == stamp ? localId[cell] : -1;
+    }
+
+    // Every cell an ant starting on start can crawl to; writes board indices into out
+    int antReach(int start, MovementValidator validator, int[] out) {
+        markNear(start);
+        java.util.Arrays.fill(visited, 0L);
+        java.util.Arrays.fill(frontier, 0L);
+
+        for (int d = 0; d < 6; d++) {
+            int j = localOf(PackedBoard.neighbor(start, d));
+            if (j >= 0 && validator.canSlideTo(start, start, d)) {
+                visited[j >> 6] |= 1L << j;
+                frontier[j >> 6] |= 1L << j;
+            }
+        }
+
+        for (int w = 0; w < words; ) {
+            if (frontier[w] == 0) {
+                w++;
+                continue;
+            }
+            int i = (w << 6) + Long.numberOfTrailingZeros(frontier[w]);
+            frontier[w] &= frontier[w] - 1;
+
+            for (int k = 0; k < words; k++) {
+                long next = edges[i * WORDS + k] & ~near[k] & ~visited[k];
+                visited[k] |= next;
+                frontier[k] |= next;
+            }
+            if ((nearAdjacent[i >> 6] & (1L << i)) != 0) {
+                for (int d = 0; d < 6; d++) {
+                    int j = neighbors[i * 6 + d];
+                    if (j >= 0 && (near[j >> 6] & (1L << j)) != 0 && (visited[j >> 6] & (1L << j)) == 0
+                            && validator.canSlideTo(start, cells[i], d)) {
+                        visited[j >> 6] |= 1L << j;
+                        frontier[j >> 6] |= 1L << j;
+                    }
+                }
+            }
+            // Rewind if a slide just reached an earlier word
+            for (int k = 0; k < w; k++) {
+                if (frontier[k] != 0) {
+                    w = k;
+                    break;
+                }
+            }
+        }
+
+        int n = 0;
+        for (int w = 0; w < words; w++) {
+            for (long bits = visited[w]; bits != 0; bits &= bits - 1) {
+                out[n++] = cells[(w << 6) + Long.numberOfTrailingZeros(bits)];
+            }
+        }
+        return n;
+    }
+
+    // Marks the empty cells around start, whose slides depend on start being gone, and their neighbours
+    private void markNear(int start) {
+        java.util.Arrays.fill(near, 0L);
+        java.util.Arrays.fill(nearAdjacent, 0L);
+        for (int d = 0; d < 6; d++) {
+            int j = localOf(PackedBoard.neighbor(start, d));
+            if (j < 0) continue;
+            near[j >> 6] |= 1L << j;
+            for (int e = 0; e < 6; e++) {
+                int k = neighbors[j * 6 + e];
+                if (k >= 0) nearAdjacent[k >> 6] |= 1L << k;
+            }
+        }
+    }
+}
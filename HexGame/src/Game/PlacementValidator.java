@@ -1,42 +1,62 @@
 package Game;
 
+import java.awt.Color;
+
 public class PlacementValidator {
     private HiveBoard board;
+    private PackedBoard packed;
 
     public PlacementValidator(HiveBoard board) {
         this.board = board;
+        this.packed = board.getPacked();
+    }
+
+    PlacementValidator(PackedBoard packed) {
+        this.packed = packed;
     }
 
     public boolean canPlaceAt(HexCoord coord, Piece piece) {
-        if (board.isEmpty()) {
-            return coord.equals(new HexCoord(0, 0));
+        if (packed.size() == 0) {
+            return coord.getQ() == 0 && coord.getR() == 0;
         }
+        return canPlaceAt(PackedBoard.index(coord), piece.getColor().equals(Color.WHITE));
+    }
 
-        if (board.containsCoord(coord)) {
-            return false;
+    public boolean canPlaceAt(int idx, boolean white) {
+        if (packed.size() == 0) {
+            return idx == PackedBoard.index(0, 0);
         }
 
-        if (board.size() == 1) {
-            for (HexCoord neighbor : coord.getNeighbors()) {
-                if (board.containsCoord(neighbor)) {
-                    return true;
-                }
-            }
+        if (packed.isOccupied(idx)) {
             return false;
         }
 
-        boolean hasOwnNeighbor = false;
-        for (HexCoord neighbor : coord.getNeighbors()) {
-            if (board.containsCoord(neighbor)) {
-                Piece topPiece = board.getTopPieceAt(neighbor);
-                if (topPiece.getColor().equals(piece.getColor())) {
-                    hasOwnNeighbor = true;
-                } else {
-                    return false;
-                }
-            }
+        if (packed.size() == 1) {
+            return packed.hasAdjacentPiece(idx);
         }
 
-        return hasOwnNeighbor;
+        return packed.adjacentTops(idx, white) > 0 && packed.adjacentTops(idx, !white) == 0;
+    }
+
+    // Writes every cell the colour may place on into out and returns how many there are
+    public int getValidPlacements(boolean white, int[] out) {
+        if (packed.size() == 0) {
+            out[0] = PackedBoard.index(0, 0);
+            return 1;
+        }
+
+        int frontier = packed.frontierCells(out);
+        if (packed.size() == 1) {
+            return frontier;
+        }
+
+        int n = 0;
+        for (int i = 0; i < frontier; i++) {
+            int cell = out[i];
+            if (packed.adjacentTops(cell, white) > 0 && packed.adjacentTops(cell, !white) == 0) {
+                out[n++] = cell;
+            }
+        }
+        return n;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,223 @@
+package Game;
+
+import java.awt.Color;
+
+/**
+ * Random games played forward on a private packed copy of a position, without allocating.
+ *
+ * Each ply lists every legal move into flat int buffers with the same rules as the AI's move
+ * generator, then picks one. Biased playouts first look for a move that surrounds the enemy
+ * queen, and otherwise pick a move that lands next to it half of the time. A game still
+ * running at the depth limit is scored by the queens' neighbour counts. One instance per
+ * thread.
+ */
+public final class Playout {
+    private static final int WHITE = 0;
+    private static final int BLACK = 1;
+    private static final int TYPES = PieceType.values().length;
+    private static final int QUEEN = PieceType.QUEEN.ordinal();
+    // More than the legal moves of any position: every reserve type on every frontier cell, plus every piece's moves
+    private static final int MAX_MOVES = TYPES * PackedBoard.MAX_FRONTIER + 22 * PackedBoard.MAX_FRONTIER;
+    private static final double QUEEN_BIAS = 0.5;
+
+    private final PackedBoard board = new PackedBoard();
+    private final MovementValidator movement = new MovementValidator(board);
+    private final MoveCalculator calculator = new MoveCalculator(board, movement);
+    private final PlacementValidator placement = new PlacementValidator(board);
+
+    private final int[][] reserve = new int[2][TYPES];
+    private final boolean[] queenPlaced = new boolean[2];
+    private final int[] turns = new int[2];
+    private int toMove;
+
+    // Moves of the current ply: from is -1 for a placement, whose piece type is in type
+    private final int[] moveFrom = new int[MAX_MOVES];
+    private final int[] moveTo = new int[MAX_MOVES];
+    private final int[] moveType = new int[MAX_MOVES];
+    private final int[] cells = new int[PackedBoard.CELLS];
+    private final int[] targets = new int[PackedBoard.CELLS];
+    private final int[] favoured = new int[MAX_MOVES];
+
+    private long positionKey;
+    private long random;
+    private long playouts;
+
+    public Playout(long seed) {
+        this.random = seed == 0 ? 0x9E3779B97F4A7C15L : seed;
+    }
+
+    public long getPlayouts() {
+        return playouts;
+    }
+
+    /*
+     * Plays from state for at most maxPlies and returns the result for perspective: 1 for a win,
+     * 0 for a loss, 0.5 for a draw, or the queen-pressure score if the limit is reached first.
+     */
+    public double run(GameState state, Color perspective, int maxPlies, boolean biased) {
+        load(state);
+        playouts++;
+        int me = perspective.equals(Color.WHITE) ? WHITE : BLACK;
+
+        for (int ply = 0; ply < maxPlies; ply++) {
+            int result = result();
+            if (result >= 0) return result == me ? 1.0 : result == 2 ? 0.5 : 0.0;
+
+            int n = generate();
+            if (n > 0) {
+                int pick = biased ? pickBiased(n) : nextInt(n);
+                play(pick);
+            }
+            nextTurn();
+        }
+
+        int result = result();
+        if (result >= 0) return result == me ? 1.0 : result == 2 ? 0.5 : 0.0;
+        return score(me);
+    }
+
+    private void load(GameState state) {
+        board.copyFrom(state.getBoard().getPacked());
+        for (int c = WHITE; c <= BLACK; c++) {
+            Color color = c == WHITE ? Color.WHITE : Color.BLACK;
+            java.util.Arrays.fill(reserve[c], 0);
+            for (Piece piece : state.getReserve(color)) {
+                reserve[c][piece.getType().ordinal()]++;
+            }
+            queenPlaced[c] = state.isQueenPlaced(color);
+            turns[c] = state.turnsOf(color);
+        }
+        toMove = state.getCurrentPlayer().equals(Color.WHITE) ? WHITE : BLACK;
+        movement.setPositionKey(++positionKey);
+    }
+
+    // Winner's colour, 2 for a draw, or -1 while the game goes on
+    private int result() {
+        boolean white = board.isQueenSurrounded(true);
+        boolean black = board.isQueenSurrounded(false);
+        if (white && black) return 2;
+        if (white) return BLACK;
+        if (black) return WHITE;
+        return -1;
+    }
+
+    // Same rule, and the same turn counting, as GameState.mustPlaceQueen
+    private boolean mustPlaceQueen() {
+        return turns[WHITE] >= 3 && !queenPlaced[WHITE] || turns[BLACK] >= 4 && !queenPlaced[BLACK];
+    }
+
+    private int generate() {
+        int n = 0;
+        boolean white = toMove == WHITE;
+
+        int placements = -1;
+        for (int type = 0; type < TYPES; type++) {
+            if (reserve[toMove][type] == 0 || mustPlaceQueen() && type != QUEEN) continue;
+            if (placements < 0) placements = placement.getValidPlacements(white, targets);
+            for (int i = 0; i < placements; i++) {
+                moveFrom[n] = -1;
+                moveTo[n] = targets[i];
+                moveType[n] = type;
+                n++;
+            }
+        }
+
+        if (queenPlaced[toMove]) {
+            int occupied = board.occupiedCells(cells);
+            for (int i = 0; i < occupied; i++) {
+                int from = cells[i];
+                int code = board.topCode(from);
+                if (PackedBoard.isWhite(code) != white) continue;
+
+                int type = PackedBoard.typeOf(code);
+                int count = calculator.getValidMoves(from, PieceType.values()[type], targets);
+                for (int j = 0; j < count; j++) {
+                    moveFrom[n] = from;
+                    moveTo[n] = targets[j];
+                    moveType[n] = type;
+                    n++;
+                }
+            }
+        }
+        return n;
+    }
+
+    // A move that wins outright if there is one, else often a move next to the enemy queen
+    private int pickBiased(int n) {
+        int enemyQueen = board.queenIndex(toMove != WHITE);
+        if (enemyQueen < 0) return nextInt(n);
+
+        int near = 0;
+        boolean lastGap = board.countOccupiedNeighbors(enemyQueen) == 5;
+        for (int i = 0; i < n; i++) {
+            if (!isNeighbor(moveTo[i], enemyQueen)) continue;
+            // A piece already beside the queen only shuffles round it
+            if (moveFrom[i] >= 0 && isNeighbor(moveFrom[i], enemyQueen) && board.height(moveFrom[i]) == 1) continue;
+            if (lastGap && !board.isOccupied(moveTo[i]) && winsAt(i)) return i;
+            favoured[near++] = i;
+        }
+        if (near > 0 && nextDouble() < QUEEN_BIAS) return favoured[nextInt(near)];
+        return nextInt(n);
+    }
+
+    // Fills the queen's last gap without also closing in our own queen
+    private boolean winsAt(int i) {
+        int ownQueen = board.queenIndex(toMove == WHITE);
+        if (ownQueen < 0 || moveTo[i] == ownQueen) return true;
+        int ownNeighbors = board.countOccupiedNeighbors(ownQueen);
+        if (ownNeighbors < 5) return true;
+        return !isNeighbor(moveTo[i], ownQueen) || moveFrom[i] >= 0 && isNeighbor(moveFrom[i], ownQueen);
+    }
+
+    private void play(int i) {
+        int to = moveTo[i];
+        if (moveFrom[i] < 0) {
+            int type = moveType[i];
+            int instance = PieceType.values()[type].getCount() - reserve[toMove][type];
+            board.push(to, toMove << 5 | type << 2 | instance);
+            reserve[toMove][type]--;
+            if (type == QUEEN) queenPlaced[toMove] = true;
+        } else {
+            board.push(to, board.pop(moveFrom[i]));
+        }
+        movement.setPositionKey(++positionKey);
+    }
+
+    private void nextTurn() {
+        toMove ^= 1;
+        turns[toMove]++;
+    }
+
+    // Queen pressure as in the search heuristic: each piece beside the enemy queen counts for, beside our own against
+    private double score(int me) {
+        int ownQueen = board.queenIndex(me == WHITE);
+        int enemyQueen = board.queenIndex(me != WHITE);
+        double score = 0.5;
+        if (ownQueen >= 0) score -= board.countOccupiedNeighbors(ownQueen) * 0.08;
+        if (enemyQueen >= 0) score += board.countOccupiedNeighbors(enemyQueen) * 0.08;
+        return Math.max(0.0, Math.min(1.0, score));
+    }
+
+    private static boolean isNeighbor(int cell, int other) {
+        for (int d = 0; d < 6; d++) {
+            if (PackedBoard.neighbor(cell, d) == other) return true;
+        }
+        return false;
+    }
+
+    // xorshift64*
+    private long nextLong() {
+        random ^= random >>> 12;
+        random ^= random << 25;
+        random ^= random >>> 27;
+        return random * 0x2545F4914F6CDD1DL;
+    }
+
+    private int nextInt(int bound) {
+        return (int) (((nextLong() >>> 33) * bound) >>> 31);
+    }
+
+    private double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+}
@@ -0,0 +1,89 @@
+package Game;
+
+import java.util.Arrays;
+
+/**
+ * Occurrence counts of position hashes, kept in an open-addressed table of
+ * primitive longs. Counts can go back down so search can undo repetitions.
+ */
+public class PositionHistory {
+    private long[] keys;
+    private int[] counts;
+    private boolean[] used;
+    private int size;
+
+    public PositionHistory() {
+        this(64);
+    }
+
+    private PositionHistory(int capacity) {
+        keys = new long[capacity];
+        counts = new int[capacity];
+        used = new boolean[capacity];
+    }
+
+    // Records one more occurrence and returns the new count
+    public int increment(long key) {
+        if ((size + 1) * 2 > keys.length) {
+            resize();
+        }
+        int slot = find(key);
+        if (!used[slot]) {
+            used[slot] = true;
+            keys[slot] = key;
+            size++;
+        }
+        return ++counts[slot];
+    }
+
+    public void decrement(long key) {
+        int slot = find(key);
+        if (used[slot] && counts[slot] > 0) {
+            counts[slot]--;
+        }
+    }
+
+    public int count(long key) {
+        int slot = find(key);
+        return used[slot] ? counts[slot] : 0;
+    }
+
+    public PositionHistory copy() {
+        PositionHistory copy = new PositionHistory(keys.length);
+        copy.keys = Arrays.copyOf(keys, keys.length);
+        copy.counts = Arrays.copyOf(counts, counts.length);
+        copy.used = Arrays.copyOf(used, used.length);
+        copy.size = size;
+        return copy;
+    }
+
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int slot = (int) (key ^ (key >>> 32)) & mask;
+        while (used[slot] && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        boolean[] oldUsed = used;
+
+        keys = new long[oldKeys.length * 2];
+        counts = new int[oldKeys.length * 2];
+        used = new boolean[oldKeys.length * 2];
+        size = 0;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i] && oldCounts[i] > 0) {
+                int slot = find(oldKeys[i]);
+                used[slot] = true;
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+                size++;
+            }
+        }
+    }
+}
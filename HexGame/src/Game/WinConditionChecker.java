@@ -1,52 +1,30 @@
 package Game;
 
-import java.awt.Color;
 import java.io.File;
-import java.util.List;
-import java.util.Map;
 
 public class WinConditionChecker {
-    private HiveBoard board;
+    private GameState state;
 
-    public WinConditionChecker(HiveBoard board) {
-        this.board = board;
+    public WinConditionChecker(GameState state) {
+        this.state = state;
     }
 
+    // Returns the end-of-game message, or null while the game goes on; the save file is only renamed once it ends
     public String checkWin(File saveGame) {
-        boolean whiteQueenSurrounded = false;
-        boolean blackQueenSurrounded = false;
-
-        for (Map.Entry<HexCoord, List<Piece>> entry : board.getBoard().entrySet()) {
-            Piece piece = entry.getValue().get(0);
-            if (piece.getType() == PieceType.QUEEN) {
-                int neighbors = 0;
-                for (HexCoord neighbor : entry.getKey().getNeighbors()) {
-                    if (board.containsCoord(neighbor)) {
-                        neighbors++;
-                    }
-                }
-
-                if (neighbors == 6) {
-                    if (piece.getColor().equals(Color.WHITE)) {
-                        whiteQueenSurrounded = true;
-                    } else {
-                        blackQueenSurrounded = true;
-                    }
-                }
-            }
+        GameResult result = state.getResult();
+
+        switch (result) {
+            case DRAW:
+                saveGame.renameTo(new File(saveGame.getPath().replace("WinnerColour", "Draw")));
+                return "Draw! Both Queens surrounded!";
+            case BLACK_WIN:
+                saveGame.renameTo(new File(saveGame.getPath().replace("WinnerColour", "Black")));
+                return "Black wins! White Queen surrounded!";
+            case WHITE_WIN:
+                saveGame.renameTo(new File(saveGame.getPath().replace("WinnerColour", "White")));
+                return "White wins! Black Queen surrounded!";
+            default:
+                return null;
         }
-
-        if (whiteQueenSurrounded && blackQueenSurrounded) {
-            saveGame.renameTo(new File(saveGame.getPath().replace("WinnerColour", "Draw")));
-            return "Draw! Both Queens surrounded!";
-        } else if (whiteQueenSurrounded) {
-            saveGame.renameTo(new File(saveGame.getPath().replace("WinnerColour", "Black")));
-            return "Black wins! White Queen surrounded!";
-        } else if (blackQueenSurrounded) {
-            saveGame.renameTo(new File(saveGame.getPath().replace("WinnerColour", "White")));
-            return "White wins! Black Queen surrounded!";
-        }
-
-        return null;
     }
 }
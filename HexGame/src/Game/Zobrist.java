@@ -0,0 +1,45 @@
+package Game;
+
+import java.awt.Color;
+
+/**
+ * Zobrist keys for hashing positions. The board is unbounded, so instead of a
+ * random table each feature is run through a 64-bit mixer, which gives the same
+ * independent pseudo-random key for a feature every time it is asked for.
+ */
+public final class Zobrist {
+    private static final long PIECE_SEED = 0x3c6ef372fe94f82bL;
+    private static final long RESERVE_SEED = 0xa54ff53a5f1d36f1L;
+
+    public static final long SIDE_TO_MOVE = mix(0x510e527fade682d1L);
+
+    private Zobrist() {
+    }
+
+    // Key for a piece of the given colour and type at (q, r) and stack height
+    public static long piece(Color color, PieceType type, int q, int r, int height) {
+        long feature = ((long) (q & 0xffff) << 32)
+                | ((long) (r & 0xffff) << 16)
+                | ((long) height << 8)
+                | ((long) colorIndex(color) << 4)
+                | type.ordinal();
+        return mix(feature ^ PIECE_SEED);
+    }
+
+    // Key for holding at least `count` pieces of a type in reserve
+    public static long reserve(Color color, PieceType type, int count) {
+        long feature = ((long) count << 8) | ((long) colorIndex(color) << 4) | type.ordinal();
+        return mix(feature ^ RESERVE_SEED);
+    }
+
+    private static int colorIndex(Color color) {
+        return color.equals(Color.WHITE) ? 0 : 1;
+    }
+
+    // splitmix64 finaliser
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -2,6 +2,8 @@ package UI;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.File;
 
 import Game.GameBoard;
@@ -24,6 +26,13 @@ public class HiveGame extends JFrame {
         statusPanel.add(gameBoard.getStatusLabel());
         add(statusPanel, BorderLayout.SOUTH);
 
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                gameBoard.shutdownAI();
+            }
+        });
+
         pack();
         setLocationRelativeTo(null);
     }
@@ -88,7 +88,8 @@ public class MainScreen extends JFrame {
                     HiveGame game = new HiveGame(saveGame);
 
                     // Add AI opponent
-                    HiveAI aiOpponent = new HiveAI(true); // true = load trained weights
+                    // true = load trained weights; the one AI in the window may search on every core
+                    HiveAI aiOpponent = new HiveAI(true, Runtime.getRuntime().availableProcessors());
                     game.getGameBoard().setAIOpponent(aiOpponent, Color.BLACK);
 
                     game.setVisible(true);